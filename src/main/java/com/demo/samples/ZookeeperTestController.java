@@ -2,12 +2,22 @@ package com.demo.samples;
 
 import com.demo.samples.services.*;
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.x.discovery.ServiceDiscovery;
+import org.apache.curator.x.discovery.ServiceInstance;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @RestController
@@ -16,43 +26,142 @@ public class ZookeeperTestController {
 
     private final CuratorFramework client;
     private final ServiceDiscovery<Void> serviceDiscovery;
+    private final CachedServiceDiscovery cachedServiceDiscovery;
     private final LeaderElectionService leaderElectionService;
     private final DistributedLockService distributedLockService;
+    private final LockRegistry lockRegistry;
     private final ReadWriteLockService readWriteLockService;
     private final BarrierService barrierService;
     private final SharedCounterService sharedCounterService;
+    private final CounterBatchService counterBatchService;
+    private final ExecutorService asyncRequestExecutor;
+    private final StatePushService statePushService;
+    private final ZnodeCacheService znodeCache;
+    private final SemaphoreService semaphoreService;
+    private final MasterWorkerService masterWorkerService;
+    private final PartitionService partitionService;
+    private final ElectionManager electionManager;
+    private final LockIntrospectionService lockIntrospectionService;
+    private final RateLimiterService rateLimiterService;
+    private final SequenceService sequenceService;
+    private final QueueService queueService;
+    private final BarrierManager barrierManager;
 
     public ZookeeperTestController(
             CuratorFramework client,
             ServiceDiscovery<Void> serviceDiscovery,
+            CachedServiceDiscovery cachedServiceDiscovery,
             LeaderElectionService leaderElectionService,
             DistributedLockService distributedLockService,
+            LockRegistry lockRegistry,
             ReadWriteLockService readWriteLockService,
             BarrierService barrierService,
-            SharedCounterService sharedCounterService) {
+            SharedCounterService sharedCounterService,
+            CounterBatchService counterBatchService,
+            ExecutorService asyncRequestExecutor,
+            StatePushService statePushService,
+            ZnodeCacheService znodeCache,
+            SemaphoreService semaphoreService,
+            MasterWorkerService masterWorkerService,
+            PartitionService partitionService,
+            ElectionManager electionManager,
+            LockIntrospectionService lockIntrospectionService,
+            RateLimiterService rateLimiterService,
+            SequenceService sequenceService,
+            QueueService queueService,
+            BarrierManager barrierManager) {
         this.client = client;
         this.serviceDiscovery = serviceDiscovery;
+        this.cachedServiceDiscovery = cachedServiceDiscovery;
         this.leaderElectionService = leaderElectionService;
         this.distributedLockService = distributedLockService;
+        this.lockRegistry = lockRegistry;
         this.readWriteLockService = readWriteLockService;
         this.barrierService = barrierService;
         this.sharedCounterService = sharedCounterService;
+        this.counterBatchService = counterBatchService;
+        this.asyncRequestExecutor = asyncRequestExecutor;
+        this.statePushService = statePushService;
+        this.znodeCache = znodeCache;
+        this.semaphoreService = semaphoreService;
+        this.masterWorkerService = masterWorkerService;
+        this.partitionService = partitionService;
+        this.electionManager = electionManager;
+        this.lockIntrospectionService = lockIntrospectionService;
+        this.rateLimiterService = rateLimiterService;
+        this.sequenceService = sequenceService;
+        this.queueService = queueService;
+        this.barrierManager = barrierManager;
     }
 
     // ========== Basic ZooKeeper Tests ==========
 
     @GetMapping("/services")
-    public List<String> getActiveServices() throws Exception {
-        return serviceDiscovery.queryForInstances("order-service")
+    public List<String> getActiveServices() {
+        // Served from the watch-maintained snapshot, no ZooKeeper round-trip
+        return cachedServiceDiscovery.getInstances()
                 .stream()
                 .map(instance -> instance.getAddress() + ":" + instance.getPort())
                 .collect(Collectors.toList());
     }
 
+    @GetMapping("/services/uncached")
+    public List<String> getActiveServicesUncached() throws Exception {
+        return serviceDiscovery.queryForInstances(CachedServiceDiscovery.SERVICE_NAME)
+                .stream()
+                .map(instance -> instance.getAddress() + ":" + instance.getPort())
+                .collect(Collectors.toList());
+    }
+
+    @GetMapping("/services/pick")
+    public Map<String, Object> pickService(@RequestParam(defaultValue = "round-robin") String strategy) {
+        Map<String, Object> result = new HashMap<>();
+        CachedServiceDiscovery.Strategy pickStrategy = CachedServiceDiscovery.Strategy.fromName(strategy);
+        result.put("strategy", strategy);
+        if (pickStrategy == null) {
+            result.put("status", "error");
+            result.put("message", "Unknown strategy: " + strategy + " (round-robin, random, least-recently-used, sticky)");
+            return result;
+        }
+        ServiceInstance<Void> instance = cachedServiceDiscovery.pick(pickStrategy);
+        if (instance == null) {
+            result.put("status", "error");
+            result.put("message", "No instances registered");
+            return result;
+        }
+        result.put("id", instance.getId());
+        result.put("address", instance.getAddress() + ":" + instance.getPort());
+        return result;
+    }
+
+    @GetMapping("/services/status")
+    public Map<String, Object> getServiceCacheStatus() {
+        return cachedServiceDiscovery.getStatus();
+    }
+
+    @GetMapping("/partitions/owner")
+    public Map<String, Object> getPartitionOwner(@RequestParam String key) {
+        return partitionService.lookup(key);
+    }
+
+    @GetMapping("/partitions/status")
+    public Map<String, Object> getPartitionStatus() {
+        return partitionService.getStatus();
+    }
+
     @GetMapping("/leader")
-    public String getLeader() throws Exception {
-        byte[] data = client.getData().forPath("/leader/job-manager");
-        return data != null ? new String(data) : "Leader path exists, but no data set.";
+    public String getLeader(@RequestParam(defaultValue = "false") boolean consistent) throws Exception {
+        Optional<ChildData> node = znodeCache.getData("/leader/job-manager", consistent);
+        if (node.isEmpty()) {
+            return "No leader elected yet.";
+        }
+        byte[] data = node.get().getData();
+        return data != null && data.length > 0 ? new String(data) : "Leader path exists, but no data set.";
+    }
+
+    @GetMapping("/cache/status")
+    public Map<String, Object> getZnodeCacheStatus() {
+        return znodeCache.getStatus();
     }
 
     // ========== Leader Election Endpoints ==========
@@ -67,6 +176,75 @@ public class ZookeeperTestController {
         return leaderElectionService.getLeaderSelectorStatus();
     }
 
+    // ========== Named Election Endpoints ==========
+
+    @PostMapping("/elections/{group}/join")
+    public Map<String, Object> joinElection(@PathVariable String group) throws Exception {
+        return electionManager.join(group);
+    }
+
+    @PostMapping("/elections/{group}/leave")
+    public Map<String, Object> leaveElection(@PathVariable String group) throws Exception {
+        return electionManager.leave(group);
+    }
+
+    @GetMapping("/elections/{group}")
+    public Map<String, Object> getElection(@PathVariable String group) {
+        return electionManager.getGroupStatus(group);
+    }
+
+    @GetMapping("/elections")
+    public Map<String, String> getLeadersByGroup() {
+        return electionManager.getLeadersByGroup();
+    }
+
+    @GetMapping("/elections/status")
+    public Map<String, Object> getElectionStatus() {
+        return electionManager.getStatus();
+    }
+
+    // ========== Queue Endpoints ==========
+
+    @PostMapping("/queue/put")
+    public Map<String, Object> putMessage(@RequestParam String message,
+                                          @RequestParam(required = false) Integer priority) throws Exception {
+        return queueService.put(message, priority);
+    }
+
+    @PostMapping("/queue/put-batch")
+    public Map<String, Object> putMessages(@RequestBody List<String> messages,
+                                           @RequestParam(required = false) Integer priority) throws Exception {
+        return queueService.putBatch(messages, priority);
+    }
+
+    @GetMapping("/queue/consumed")
+    public Map<String, Object> getConsumedMessages() {
+        return queueService.getConsumedMessages();
+    }
+
+    @PostMapping("/queue/clear")
+    public Map<String, Object> clearConsumedMessages() {
+        return queueService.clearConsumed();
+    }
+
+    @GetMapping("/queue/status")
+    public Map<String, Object> getQueueStatus() {
+        return queueService.getStatus();
+    }
+
+    // ========== Job Queue Endpoints ==========
+
+    @PostMapping("/jobs/submit")
+    public Map<String, Object> submitJobs(@RequestParam(defaultValue = "1") int count,
+                                          @RequestParam(defaultValue = "job") String payload) throws Exception {
+        return masterWorkerService.submit(count, payload);
+    }
+
+    @GetMapping("/jobs/status")
+    public Map<String, Object> getJobStatus() throws Exception {
+        return masterWorkerService.getStatus();
+    }
+
     // ========== Distributed Lock Endpoints ==========
 
     @PostMapping("/lock/acquire")
@@ -85,10 +263,83 @@ public class ZookeeperTestController {
     }
 
     @PostMapping("/lock/critical-section")
-    public Map<String, Object> performCriticalSection(@RequestParam String operation) throws Exception {
+    public Map<String, Object> performCriticalSection(@RequestParam String operation,
+                                                      @RequestParam(required = false) String resource) throws Exception {
+        if (resource != null) {
+            return distributedLockService.performCriticalSection(operation, resource);
+        }
         return distributedLockService.performCriticalSection(operation);
     }
 
+    @GetMapping("/lock/registry/status")
+    public Map<String, Object> getLockRegistryStatus() {
+        return lockRegistry.getStatus();
+    }
+
+    @GetMapping("/lock/inspect")
+    public Map<String, Object> inspectLock(@RequestParam(required = false) String path,
+                                           @RequestParam(required = false) String resource,
+                                           @RequestParam(defaultValue = "mutex") String type) {
+        if (path == null) {
+            path = resource != null
+                    ? lockRegistry.pathFor(resource) + ("rw".equals(type) ? "/rw" : "/mutex")
+                    : DistributedLockService.LOCK_PATH;
+        }
+        return lockIntrospectionService.inspect(path);
+    }
+
+    @GetMapping("/lock/inspect/hot")
+    public List<Map<String, Object>> inspectHotLocks(@RequestParam(defaultValue = "10") int limit) {
+        return lockIntrospectionService.inspectHot(limit);
+    }
+
+    // ========== Semaphore Endpoints ==========
+
+    @PostMapping("/semaphore/acquire")
+    public Map<String, Object> acquireSemaphore(@RequestParam(defaultValue = "1") int permits,
+                                                @RequestParam(defaultValue = "5") long timeout) throws Exception {
+        return semaphoreService.acquire(permits, timeout);
+    }
+
+    @PostMapping("/semaphore/release")
+    public Map<String, Object> releaseSemaphore(@RequestParam String leaseId) throws Exception {
+        return semaphoreService.release(leaseId);
+    }
+
+    @PostMapping("/semaphore/critical-section")
+    public Map<String, Object> performThrottled(@RequestParam String operation,
+                                                @RequestParam(defaultValue = "1") int permits) throws Exception {
+        return semaphoreService.performThrottled(operation, permits);
+    }
+
+    @PostMapping("/semaphore/max-leases")
+    public Map<String, Object> setSemaphoreMaxLeases(@RequestParam int value) throws Exception {
+        return semaphoreService.setMaxLeases(value);
+    }
+
+    @GetMapping("/semaphore/status")
+    public Map<String, Object> getSemaphoreStatus() {
+        return semaphoreService.getStatus();
+    }
+
+    // ========== Rate Limiter Endpoints ==========
+
+    @PostMapping("/ratelimit/acquire")
+    public Map<String, Object> acquireRateLimit(@RequestParam(defaultValue = "1") int permits,
+                                                @RequestParam(defaultValue = "0") long timeoutMs) {
+        return rateLimiterService.requestPermits(permits, timeoutMs);
+    }
+
+    @PostMapping("/ratelimit/rate")
+    public Map<String, Object> setRateLimit(@RequestParam int permitsPerSecond) throws Exception {
+        return rateLimiterService.setPermitsPerSecond(permitsPerSecond);
+    }
+
+    @GetMapping("/ratelimit/status")
+    public Map<String, Object> getRateLimitStatus() {
+        return rateLimiterService.getStatus();
+    }
+
     // ========== Read/Write Lock Endpoints ==========
 
     @PostMapping("/rwlock/read/acquire")
@@ -160,6 +411,62 @@ public class ZookeeperTestController {
         return barrierService.leaveDoubleBarrier(timeout);
     }
 
+    // ========== Barrier Group Endpoints ==========
+
+    @PostMapping("/barrier-groups/{group}/double/enter")
+    public Map<String, Object> enterGroupDoubleBarrier(@PathVariable String group,
+                                                       @RequestParam(required = false) Integer memberQty,
+                                                       @RequestParam(defaultValue = "30") long timeout) throws Exception {
+        return barrierManager.enterDouble(group, memberQty, timeout);
+    }
+
+    @PostMapping("/barrier-groups/{group}/double/leave")
+    public Map<String, Object> leaveGroupDoubleBarrier(@PathVariable String group,
+                                                       @RequestParam(required = false) String memberId,
+                                                       @RequestParam(defaultValue = "30") long timeout) throws Exception {
+        return barrierManager.leaveDouble(group, memberId, timeout);
+    }
+
+    @PostMapping("/tree-barrier/{group}/enter")
+    public Map<String, Object> enterTreeBarrier(@PathVariable String group,
+                                                @RequestParam long round,
+                                                @RequestParam int memberQty,
+                                                @RequestParam(required = false) Integer fanIn,
+                                                @RequestParam(defaultValue = "30") long timeout) throws Exception {
+        return barrierManager.enterTree(group, round, memberQty, fanIn, timeout);
+    }
+
+    @PostMapping("/tree-barrier/{group}/reset")
+    public Map<String, Object> resetTreeBarrier(@PathVariable String group) throws Exception {
+        return barrierManager.resetTree(group);
+    }
+
+    @PostMapping("/barrier-groups/{group}/set")
+    public Map<String, Object> setGroupBarrier(@PathVariable String group) throws Exception {
+        return barrierManager.setBarrier(group);
+    }
+
+    @PostMapping("/barrier-groups/{group}/remove")
+    public Map<String, Object> removeGroupBarrier(@PathVariable String group) throws Exception {
+        return barrierManager.removeBarrier(group);
+    }
+
+    @PostMapping("/barrier-groups/{group}/wait")
+    public Map<String, Object> waitOnGroupBarrier(@PathVariable String group,
+                                                  @RequestParam(defaultValue = "10") long timeout) throws Exception {
+        return barrierManager.waitOnBarrier(group, timeout);
+    }
+
+    @GetMapping("/barrier-groups/{group}")
+    public Map<String, Object> getBarrierGroupStatus(@PathVariable String group) {
+        return barrierManager.getGroupStatus(group);
+    }
+
+    @GetMapping("/barrier-groups/status")
+    public Map<String, Object> getBarrierGroupsStatus() {
+        return barrierManager.getStatus();
+    }
+
 
     // ========== SharedCount Endpoints ==========
 
@@ -205,9 +512,44 @@ public class ZookeeperTestController {
         return sharedCounterService.setAtomicLong(value);
     }
 
+    @PostMapping("/counter/atomic/flush")
+    public Map<String, Object> flushAtomicLong() throws Exception {
+        return sharedCounterService.flushAtomicLong();
+    }
+
+    // ========== Sequence Endpoints ==========
+
+    @PostMapping("/sequence/{name}/next")
+    public Map<String, Object> nextSequenceId(@PathVariable String name) {
+        return sequenceService.next(name);
+    }
+
+    @PostMapping("/sequence/{name}/batch")
+    public Map<String, Object> nextSequenceIds(@PathVariable String name, @RequestParam(defaultValue = "100") int count) {
+        return sequenceService.next(name, count);
+    }
+
+    @GetMapping("/sequence/status")
+    public Map<String, Object> getSequenceStatus() {
+        return sequenceService.getStatus();
+    }
+
+    // ========== Batch Counter Endpoint ==========
+
+    @PostMapping("/counter/batch")
+    public Map<String, Object> applyCounterBatch(@RequestBody List<CounterMutation> mutations) throws Exception {
+        return counterBatchService.applyBatch(mutations);
+    }
+
     @GetMapping("/counter/events")
-    public Map<String, Object> getCounterEvents() {
-        return sharedCounterService.getCounterEvents();
+    public Map<String, Object> getCounterEvents(@RequestParam(defaultValue = "0") long cursor,
+                                                @RequestParam(defaultValue = "100") int limit) {
+        return sharedCounterService.getCounterEvents(cursor, limit);
+    }
+
+    @GetMapping(value = "/counter/events/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCounterEvents(@RequestParam(required = false) Long cursor) {
+        return sharedCounterService.streamCounterEvents(cursor);
     }
 
     @PostMapping("/counter/events/clear")
@@ -215,23 +557,153 @@ public class ZookeeperTestController {
         return sharedCounterService.clearCounterEvents();
     }
 
+    // ========== Async Endpoints ==========
+    // These release the servlet thread while waiting; barrier waits park on a ZooKeeper watch,
+    // the other recipes block on the bounded async executor instead of a Tomcat thread.
+
+    @PostMapping("/async/lock/acquire")
+    public CompletableFuture<Map<String, Object>> acquireLockAsync(@RequestParam(defaultValue = "5") long timeout) {
+        return async(() -> distributedLockService.acquireLock(timeout));
+    }
+
+    @PostMapping("/async/lock/critical-section")
+    public CompletableFuture<Map<String, Object>> performCriticalSectionAsync(@RequestParam String operation,
+                                                                             @RequestParam(required = false) String resource) {
+        return async(() -> performCriticalSection(operation, resource));
+    }
+
+    @PostMapping("/async/barrier/wait")
+    public CompletableFuture<Map<String, Object>> waitOnBarrierAsync(@RequestParam(defaultValue = "10") long timeout) {
+        return barrierService.waitOnBarrierAsync(timeout);
+    }
+
+    @PostMapping("/async/double-barrier/enter")
+    public CompletableFuture<Map<String, Object>> enterDoubleBarrierAsync(@RequestParam(defaultValue = "30") long timeout) {
+        return async(() -> barrierService.enterDoubleBarrier(timeout));
+    }
+
+    @PostMapping("/async/double-barrier/leave")
+    public CompletableFuture<Map<String, Object>> leaveDoubleBarrierAsync(@RequestParam(defaultValue = "30") long timeout) {
+        return async(() -> barrierService.leaveDoubleBarrier(timeout));
+    }
+
+    @PostMapping("/async/counter/atomic/increment")
+    public CompletableFuture<Map<String, Object>> incrementAtomicLongAsync() {
+        return async(sharedCounterService::incrementAtomicLong);
+    }
+
+    @PostMapping("/async/counter/atomic/add")
+    public CompletableFuture<Map<String, Object>> addAtomicLongAsync(@RequestParam long delta) {
+        return async(() -> sharedCounterService.addAtomicLong(delta));
+    }
+
+    private CompletableFuture<Map<String, Object>> async(Callable<Map<String, Object>> call) {
+        CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+        try {
+            asyncRequestExecutor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("status", "error");
+            result.put("message", "Too many async requests in progress");
+            future.complete(result);
+        }
+        return future;
+    }
+
+    // ========== Push Stream Endpoints ==========
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStateChanges(@RequestParam(defaultValue = "leader,counter,barrier") Set<String> topics) {
+        topics.retainAll(StatePushService.TOPICS);
+        return statePushService.subscribe(topics);
+    }
+
+    @GetMapping("/stream/status")
+    public Map<String, Object> getStreamStatus() {
+        return statePushService.getStatus();
+    }
+
     // ========== Summary Endpoint ==========
 
     @GetMapping("/recipes")
     public Map<String, Object> getAllRecipes() {
         Map<String, Object> recipes = new HashMap<>();
         
+        Map<String, String> discovery = new HashMap<>();
+        discovery.put("Cached Instances", "GET /zk-test/services");
+        discovery.put("Uncached Instances", "GET /zk-test/services/uncached");
+        discovery.put("Pick Instance", "GET /zk-test/services/pick?strategy=round-robin");
+        discovery.put("Cache Status", "GET /zk-test/services/status");
+        recipes.put("Service Discovery", discovery);
+
+        Map<String, String> partitions = new HashMap<>();
+        partitions.put("Owner Of Key", "GET /zk-test/partitions/owner?key=order-42");
+        partitions.put("Status", "GET /zk-test/partitions/status");
+        recipes.put("Partitions", partitions);
+
         Map<String, String> leaderElection = new HashMap<>();
         leaderElection.put("LeaderLatch", "GET /zk-test/leader-latch/status");
         leaderElection.put("LeaderSelector", "GET /zk-test/leader-selector/status");
         recipes.put("Leader Election", leaderElection);
+
+        Map<String, String> elections = new HashMap<>();
+        elections.put("Join", "POST /zk-test/elections/{group}/join");
+        elections.put("Leave", "POST /zk-test/elections/{group}/leave");
+        elections.put("Group Status", "GET /zk-test/elections/{group}");
+        elections.put("Leaders By Group", "GET /zk-test/elections");
+        elections.put("Status", "GET /zk-test/elections/status");
+        recipes.put("Named Elections", elections);
+
+        Map<String, String> jobs = new HashMap<>();
+        jobs.put("Submit", "POST /zk-test/jobs/submit?count=100&payload=myJob");
+        jobs.put("Status", "GET /zk-test/jobs/status");
+        recipes.put("Job Queue", jobs);
         
         Map<String, String> locks = new HashMap<>();
         locks.put("InterProcessMutex - Acquire", "POST /zk-test/lock/acquire?timeout=5");
         locks.put("InterProcessMutex - Release", "POST /zk-test/lock/release");
         locks.put("InterProcessMutex - Status", "GET /zk-test/lock/status");
         locks.put("InterProcessMutex - Critical Section", "POST /zk-test/lock/critical-section?operation=myOp");
+        locks.put("InterProcessMutex - Per-Resource Critical Section", "POST /zk-test/lock/critical-section?operation=myOp&resource=myResource");
+        locks.put("Lock Registry - Status", "GET /zk-test/lock/registry/status");
+        locks.put("Inspect - Holders And Waiters", "GET /zk-test/lock/inspect?resource=myResource&type=mutex");
+        locks.put("Inspect - Most Contended", "GET /zk-test/lock/inspect/hot?limit=10");
         recipes.put("Distributed Lock", locks);
+
+        Map<String, String> semaphore = new HashMap<>();
+        semaphore.put("Acquire", "POST /zk-test/semaphore/acquire?permits=2&timeout=5");
+        semaphore.put("Release", "POST /zk-test/semaphore/release?leaseId=...");
+        semaphore.put("Throttled Operation", "POST /zk-test/semaphore/critical-section?operation=myOp&permits=1");
+        semaphore.put("Set Max Leases", "POST /zk-test/semaphore/max-leases?value=10");
+        semaphore.put("Status", "GET /zk-test/semaphore/status");
+        recipes.put("Semaphore", semaphore);
+
+        Map<String, String> rateLimit = new HashMap<>();
+        rateLimit.put("Acquire", "POST /zk-test/ratelimit/acquire?permits=1&timeoutMs=0");
+        rateLimit.put("Set Rate", "POST /zk-test/ratelimit/rate?permitsPerSecond=1000");
+        rateLimit.put("Status", "GET /zk-test/ratelimit/status");
+        recipes.put("Rate Limiter", rateLimit);
+
+        Map<String, String> sequence = new HashMap<>();
+        sequence.put("Next ID", "POST /zk-test/sequence/{name}/next");
+        sequence.put("Next IDs (bulk)", "POST /zk-test/sequence/{name}/batch?count=1000");
+        sequence.put("Status", "GET /zk-test/sequence/status");
+        recipes.put("Sequence", sequence);
+
+        Map<String, String> queue = new HashMap<>();
+        queue.put("Put", "POST /zk-test/queue/put?message=hello");
+        queue.put("Put With Priority", "POST /zk-test/queue/put?message=urgent&priority=0");
+        queue.put("Put Batch", "POST /zk-test/queue/put-batch (JSON array of messages, optional priority)");
+        queue.put("Consumed Messages", "GET /zk-test/queue/consumed");
+        queue.put("Clear Consumed", "POST /zk-test/queue/clear");
+        queue.put("Status", "GET /zk-test/queue/status");
+        recipes.put("Queue", queue);
         
         Map<String, String> rwLocks = new HashMap<>();
         rwLocks.put("Read Lock - Acquire", "POST /zk-test/rwlock/read/acquire?timeout=5");
@@ -255,6 +727,18 @@ public class ZookeeperTestController {
         doubleBarriers.put("Leave", "POST /zk-test/double-barrier/leave?timeout=30");
         recipes.put("Double Barrier", doubleBarriers);
 
+        Map<String, String> barrierGroups = new HashMap<>();
+        barrierGroups.put("Double - Enter", "POST /zk-test/barrier-groups/stage-1/double/enter?memberQty=3&timeout=30");
+        barrierGroups.put("Double - Leave", "POST /zk-test/barrier-groups/stage-1/double/leave?memberId=<id>&timeout=30");
+        barrierGroups.put("Tree - Enter", "POST /zk-test/tree-barrier/stage-1/enter?round=0&memberQty=1000&fanIn=16&timeout=30");
+        barrierGroups.put("Tree - Reset", "POST /zk-test/tree-barrier/stage-1/reset");
+        barrierGroups.put("Set Barrier", "POST /zk-test/barrier-groups/stage-1/set");
+        barrierGroups.put("Remove Barrier", "POST /zk-test/barrier-groups/stage-1/remove");
+        barrierGroups.put("Wait on Barrier", "POST /zk-test/barrier-groups/stage-1/wait?timeout=10");
+        barrierGroups.put("Group", "GET /zk-test/barrier-groups/stage-1");
+        barrierGroups.put("Status", "GET /zk-test/barrier-groups/status");
+        recipes.put("Barrier Groups", barrierGroups);
+
         Map<String, String> sharedCount = new HashMap<>();
         sharedCount.put("Get", "GET /zk-test/counter/shared/get");
         sharedCount.put("Set", "POST /zk-test/counter/shared/set?value=10");
@@ -267,9 +751,36 @@ public class ZookeeperTestController {
         atomicLong.put("Decrement", "POST /zk-test/counter/atomic/decrement");
         atomicLong.put("Add", "POST /zk-test/counter/atomic/add?delta=5");
         atomicLong.put("Set", "POST /zk-test/counter/atomic/set?value=100");
-        atomicLong.put("Get Events", "GET /zk-test/counter/events");
+        atomicLong.put("Flush (sharded mode)", "POST /zk-test/counter/atomic/flush");
+        atomicLong.put("Get Events", "GET /zk-test/counter/events?cursor=0&limit=100");
+        atomicLong.put("Stream Events", "GET /zk-test/counter/events/stream");
         atomicLong.put("Clear Events", "POST /zk-test/counter/events/clear");
         recipes.put("DistributedAtomicLong", atomicLong);
+
+        Map<String, String> batch = new HashMap<>();
+        batch.put("Apply Batch", "POST /zk-test/counter/batch (JSON list of {counter, type, op, value, expected})");
+        recipes.put("Counter Batch", batch);
+
+        Map<String, String> async = new HashMap<>();
+        async.put("Lock - Acquire", "POST /zk-test/async/lock/acquire?timeout=5");
+        async.put("Lock - Critical Section", "POST /zk-test/async/lock/critical-section?operation=myOp");
+        async.put("Barrier - Wait", "POST /zk-test/async/barrier/wait?timeout=10");
+        async.put("Double Barrier - Enter", "POST /zk-test/async/double-barrier/enter?timeout=30");
+        async.put("Double Barrier - Leave", "POST /zk-test/async/double-barrier/leave?timeout=30");
+        async.put("Atomic Long - Increment", "POST /zk-test/async/counter/atomic/increment");
+        async.put("Atomic Long - Add", "POST /zk-test/async/counter/atomic/add?delta=5");
+        recipes.put("Async", async);
+
+        Map<String, String> stream = new HashMap<>();
+        stream.put("Subscribe", "GET /zk-test/stream?topics=leader,counter,barrier");
+        stream.put("Status", "GET /zk-test/stream/status");
+        recipes.put("Push Stream", stream);
+
+        Map<String, String> znodeCache = new HashMap<>();
+        znodeCache.put("Job Manager Leader (cached)", "GET /zk-test/leader");
+        znodeCache.put("Job Manager Leader (sync + read)", "GET /zk-test/leader?consistent=true");
+        znodeCache.put("Status", "GET /zk-test/cache/status");
+        recipes.put("Znode Cache", znodeCache);
         
         return recipes;
     }
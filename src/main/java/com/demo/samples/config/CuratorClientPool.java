@@ -0,0 +1,44 @@
+package com.demo.samples.config;
+
+import org.apache.curator.framework.CuratorFramework;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed set of Curator clients, each with its own ZooKeeper session and event thread.
+ * <p>
+ * Recipes are pinned to a client by hashing their path, so a given lock or cache always
+ * uses the same session while watch callbacks for unrelated recipes are delivered on
+ * different event threads. The first client is the primary {@link CuratorFramework} bean.
+ */
+public class CuratorClientPool {
+
+    private final List<CuratorFramework> clients;
+    private final List<CuratorFramework> owned;
+
+    public CuratorClientPool(CuratorFramework primary, List<CuratorFramework> additional) {
+        List<CuratorFramework> all = new ArrayList<>();
+        all.add(primary);
+        all.addAll(additional);
+        this.clients = List.copyOf(all);
+        this.owned = List.copyOf(additional);
+    }
+
+    public CuratorFramework clientFor(String path) {
+        return clients.get(Math.floorMod(path.hashCode(), clients.size()));
+    }
+
+    public List<CuratorFramework> getClients() {
+        return clients;
+    }
+
+    public int size() {
+        return clients.size();
+    }
+
+    // The primary client is closed by its own bean
+    public void close() {
+        owned.forEach(CuratorFramework::close);
+    }
+}
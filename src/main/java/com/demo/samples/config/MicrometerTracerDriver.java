@@ -0,0 +1,41 @@
+package com.demo.samples.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.curator.drivers.TracerDriver;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes Curator's internal traces as Micrometer meters. Curator traces every
+ * foreground and background ZooKeeper call, so {@code zk.operations} is the
+ * client-observed round-trip latency per operation type.
+ */
+public class MicrometerTracerDriver implements TracerDriver {
+
+    private final MeterRegistry meterRegistry;
+    // Curator calls these on every ZooKeeper operation; look each meter up once
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public MicrometerTracerDriver(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void addTrace(String name, long time, TimeUnit unit) {
+        timers.computeIfAbsent(name, key -> Timer.builder("zk.operations")
+                        .tag("operation", key)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(time, unit);
+    }
+
+    @Override
+    public void addCount(String name, int increment) {
+        counters.computeIfAbsent(name, key -> meterRegistry.counter("zk.events", "event", key)).increment(increment);
+    }
+}
@@ -1,21 +1,76 @@
 package com.demo.samples.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.imps.GzipCompressionProvider;
 import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.curator.x.discovery.ServiceDiscovery;
 import org.apache.curator.x.discovery.ServiceDiscoveryBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Configuration
+@EnableConfigurationProperties(ZookeeperProperties.class)
 public class ZookeeperConfig {
+
+    // "platform" (cached thread pool) or "virtual" (virtual thread per task, Java 21+)
+    @Value("${zookeeper.executor.strategy:platform}")
+    private String executorStrategy;
+
     @Bean(initMethod = "start", destroyMethod = "close")
-    public CuratorFramework curatorFramework() {
-        return CuratorFrameworkFactory.newClient(
-                "localhost:2181",
-                new ExponentialBackoffRetry(1000, 3)
-        );
+    public CuratorFramework curatorFramework(ZookeeperProperties properties, MeterRegistry meterRegistry) {
+        return newClient(properties, properties.getConnectString(), meterRegistry);
+    }
+
+    // Additional sessions that recipes can be spread across; see zookeeper.pool.*
+    @Bean(destroyMethod = "close")
+    public CuratorClientPool curatorClientPool(CuratorFramework curatorFramework, ZookeeperProperties properties,
+                                               MeterRegistry meterRegistry) {
+        List<String> connectStrings = properties.getPool().getConnectStrings();
+        int size = connectStrings.isEmpty() ? properties.getPool().getSize() : connectStrings.size() + 1;
+        List<CuratorFramework> additional = new ArrayList<>();
+        for (int i = 1; i < size; i++) {
+            String connectString = connectStrings.isEmpty() ? properties.getConnectString() : connectStrings.get(i - 1);
+            CuratorFramework client = newClient(properties, connectString, meterRegistry);
+            client.start();
+            additional.add(client);
+        }
+        return new CuratorClientPool(curatorFramework, additional);
+    }
+
+    private static CuratorFramework newClient(ZookeeperProperties properties, String connectString,
+                                              MeterRegistry meterRegistry) {
+        ZookeeperProperties.Retry retry = properties.getRetry();
+        CuratorFrameworkFactory.Builder builder = CuratorFrameworkFactory.builder()
+                .connectString(connectString)
+                .sessionTimeoutMs(properties.getSessionTimeoutMs())
+                .connectionTimeoutMs(properties.getConnectionTimeoutMs())
+                .retryPolicy(new ExponentialBackoffRetry(retry.getBaseSleepMs(), retry.getMaxRetries(), retry.getMaxSleepMs()))
+                .ensembleTracker(properties.isEnsembleTracker())
+                .canBeReadOnly(properties.isCanBeReadOnly());
+        if (!properties.getNamespace().isEmpty()) {
+            builder.namespace(properties.getNamespace());
+        }
+        if (properties.isCompression()) {
+            builder.compressionProvider(new GzipCompressionProvider());
+        }
+        CuratorFramework client = builder.build();
+        client.getZookeeperClient().setTracerDriver(new MicrometerTracerDriver(meterRegistry));
+        client.getConnectionStateListenable().addListener((c, newState) ->
+                meterRegistry.counter("zk.connection.state.changes", "state", newState.name()).increment());
+        return client;
     }
 
 
@@ -27,4 +82,46 @@ public class ZookeeperConfig {
                 .basePath("/services") // The root path in Zookeeper
                 .build();
     }
+
+    // Runs LeaderSelector leadership and SharedCount/connection state listeners
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService coordinationExecutor() {
+        return newExecutor(executorStrategy, "zk-coordination-");
+    }
+
+    // Runs the blocking recipe calls behind the async endpoints. A request that finds all
+    // threads busy is rejected instead of queued, so a wait never starts later than asked.
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService asyncRequestExecutor(@Value("${zookeeper.executor.async.max-threads:256}") int maxThreads) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, "zk-async-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Tomcat request threads follow spring.threads.virtual.enabled instead
+    static ExecutorService newExecutor(String strategy, String threadPrefix) {
+        if ("virtual".equalsIgnoreCase(strategy)) {
+            try {
+                // Looked up reflectively so the project still builds and runs on Java 17
+                return (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("zookeeper.executor.strategy=virtual needs Java 21 or later, running on "
+                        + System.getProperty("java.version"), e);
+            }
+        }
+        if (!"platform".equalsIgnoreCase(strategy)) {
+            throw new IllegalArgumentException("Unknown zookeeper.executor.strategy: " + strategy);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, threadPrefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
 }
\ No newline at end of file
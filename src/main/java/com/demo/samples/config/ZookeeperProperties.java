@@ -0,0 +1,147 @@
+package com.demo.samples.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Curator client settings, bound from {@code zookeeper.*}.
+ */
+@ConfigurationProperties(prefix = "zookeeper")
+public class ZookeeperProperties {
+
+    private String connectString = "localhost:2181";
+    private int sessionTimeoutMs = 60000;
+    private int connectionTimeoutMs = 15000;
+    // Empty means no namespace
+    private String namespace = "";
+    // Gzip payloads written with compression (job payloads); Curator 5.5 has no client-wide switch
+    private boolean compression = false;
+    // Follow ensemble reconfiguration (ZooKeeper 3.5+ dynamic config)
+    private boolean ensembleTracker = true;
+    // Keep serving reads from a read-only server when the ensemble loses quorum
+    private boolean canBeReadOnly = false;
+    private final Retry retry = new Retry();
+    private final Pool pool = new Pool();
+
+    public String getConnectString() {
+        return connectString;
+    }
+
+    public void setConnectString(String connectString) {
+        this.connectString = connectString;
+    }
+
+    public int getSessionTimeoutMs() {
+        return sessionTimeoutMs;
+    }
+
+    public void setSessionTimeoutMs(int sessionTimeoutMs) {
+        this.sessionTimeoutMs = sessionTimeoutMs;
+    }
+
+    public int getConnectionTimeoutMs() {
+        return connectionTimeoutMs;
+    }
+
+    public void setConnectionTimeoutMs(int connectionTimeoutMs) {
+        this.connectionTimeoutMs = connectionTimeoutMs;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public void setNamespace(String namespace) {
+        this.namespace = namespace;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    public boolean isEnsembleTracker() {
+        return ensembleTracker;
+    }
+
+    public void setEnsembleTracker(boolean ensembleTracker) {
+        this.ensembleTracker = ensembleTracker;
+    }
+
+    public boolean isCanBeReadOnly() {
+        return canBeReadOnly;
+    }
+
+    public void setCanBeReadOnly(boolean canBeReadOnly) {
+        this.canBeReadOnly = canBeReadOnly;
+    }
+
+    public Retry getRetry() {
+        return retry;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public static class Retry {
+
+        private int baseSleepMs = 1000;
+        private int maxRetries = 3;
+        private int maxSleepMs = 30000;
+
+        public int getBaseSleepMs() {
+            return baseSleepMs;
+        }
+
+        public void setBaseSleepMs(int baseSleepMs) {
+            this.baseSleepMs = baseSleepMs;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+
+        public int getMaxSleepMs() {
+            return maxSleepMs;
+        }
+
+        public void setMaxSleepMs(int maxSleepMs) {
+            this.maxSleepMs = maxSleepMs;
+        }
+    }
+
+    public static class Pool {
+
+        // Clients in the pool, including the primary client
+        private int size = 1;
+        // Optional connect strings for the clients after the primary, to spread recipes over
+        // several ensembles; when set, the pool size is one more than the list size
+        private List<String> connectStrings = new ArrayList<>();
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public List<String> getConnectStrings() {
+            return connectStrings;
+        }
+
+        public void setConnectStrings(List<String> connectStrings) {
+            this.connectStrings = connectStrings;
+        }
+    }
+}
@@ -0,0 +1,540 @@
+package com.demo.samples.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.barriers.DistributedBarrier;
+import org.apache.curator.framework.recipes.barriers.DistributedDoubleBarrier;
+import org.apache.zookeeper.KeeperException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Barriers keyed by group, so any number of independent rendezvous points can be in use at
+ * once. Each group has a {@link DistributedBarrier} at {@code /barriers/groups/<group>/simple}
+ * and a {@link DistributedDoubleBarrier} at {@code /barriers/groups/<group>/double}; large
+ * groups can use a {@link TreeBarrier} at {@code /barriers/groups/<group>/tree} instead.
+ * <p>
+ * Every double barrier {@link #enterDouble enter} is a member of its own with a
+ * {@code memberId}, so concurrent callers in one JVM count as separate members. Groups are
+ * created on first use; a group with no members inside and no callers for
+ * {@code barriers.idle-ttl-ms} is dropped, together with its double and tree barrier znodes
+ * if they are empty; a set simple barrier is left set. The {@code default} group behind
+ * {@link BarrierService} is kept.
+ */
+@Service
+public class BarrierManager {
+
+    public static final String DEFAULT_GROUP = "default";
+    static final String BASE_PATH = "/barriers/groups";
+    // Would be shadowed by GET /barrier-groups/status
+    private static final Set<String> RESERVED_GROUPS = Set.of("status");
+
+    private final CuratorFramework client;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Group> groups = new ConcurrentHashMap<>();
+    private final Map<String, Timer> waitTimers = new ConcurrentHashMap<>();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private ScheduledExecutorService evictor;
+
+    @Value("${barriers.idle-ttl-ms:60000}")
+    private long idleTtlMs;
+
+    @Value("${barriers.max-groups:10000}")
+    private int maxGroups;
+
+    @Value("${barriers.tree.fan-in:16}")
+    private int treeFanIn;
+
+    public BarrierManager(CuratorFramework client, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("zk.barrier.groups", groups, Map::size)
+                .register(meterRegistry);
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "barrier-group-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTtlMs / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // ========== Double barrier ==========
+
+    /**
+     * Sets the member count of {@code group}'s double barrier for callers that do not pass one.
+     */
+    public Map<String, Object> configureDouble(String group, int memberQty) {
+        Map<String, Object> invalid = validate(group);
+        if (invalid != null) {
+            return invalid;
+        }
+        Map<String, Object> result = new HashMap<>();
+        if (memberQty < 1) {
+            result.put("status", "error");
+            result.put("message", "memberQty must be at least 1");
+            return result;
+        }
+        Group entry = checkout(group);
+        try {
+            entry.memberQty = memberQty;
+        } finally {
+            checkin(entry);
+        }
+        result.put("status", "success");
+        result.put("group", group);
+        result.put("message", "Double barrier created with member quantity: " + memberQty);
+        result.put("memberQty", memberQty);
+        return result;
+    }
+
+    /**
+     * Enters {@code group}'s double barrier as a new member. {@code memberQty} may be null
+     * once the group has been configured.
+     */
+    public Map<String, Object> enterDouble(String group, Integer memberQty, long timeout) throws Exception {
+        Map<String, Object> invalid = validate(group);
+        if (invalid != null) {
+            return invalid;
+        }
+        Map<String, Object> result = new HashMap<>();
+        Group entry = checkout(group);
+        try {
+            if (memberQty != null) {
+                if (entry.memberQty != 0 && entry.memberQty != memberQty) {
+                    result.put("status", "error");
+                    result.put("message", "Group " + group + " has member quantity " + entry.memberQty + ", not " + memberQty);
+                    return result;
+                }
+                entry.memberQty = memberQty;
+            } else if (entry.memberQty == 0) {
+                result.put("status", "error");
+                result.put("message", "Double barrier not initialized. Call /create-double-barrier first.");
+                return result;
+            }
+
+            String memberId = UUID.randomUUID().toString();
+            DistributedDoubleBarrier barrier = new DistributedDoubleBarrier(client, entry.doublePath(), entry.memberQty);
+            // Registered before entering so the group is not evicted while this member waits
+            entry.members.put(memberId, barrier);
+            long startTime = System.currentTimeMillis();
+            boolean entered;
+            try {
+                entered = barrier.enter(timeout, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                entry.members.remove(memberId);
+                throw e;
+            }
+            long endTime = System.currentTimeMillis();
+            recordWait("double-enter", startTime, endTime);
+            if (!entered) {
+                // Curator removes our node when enter times out
+                entry.members.remove(memberId);
+            }
+
+            result.put("group", group);
+            result.put("entered", entered);
+            result.put("waitTimeMs", endTime - startTime);
+            result.put("timestamp", endTime);
+            if (entered) {
+                result.put("memberId", memberId);
+                result.put("message", "Successfully entered the double barrier");
+            } else {
+                result.put("message", "Failed to enter barrier within timeout");
+            }
+            return result;
+        } finally {
+            checkin(entry);
+        }
+    }
+
+    /**
+     * Leaves {@code group}'s double barrier as {@code memberId}. With a null {@code memberId}
+     * any one of this node's members inside the group leaves.
+     */
+    public Map<String, Object> leaveDouble(String group, String memberId, long timeout) throws Exception {
+        Map<String, Object> invalid = validate(group);
+        if (invalid != null) {
+            return invalid;
+        }
+        Map<String, Object> result = new HashMap<>();
+        Group entry = checkout(group);
+        try {
+            DistributedDoubleBarrier barrier = null;
+            if (memberId != null) {
+                barrier = entry.members.remove(memberId);
+            } else {
+                for (String id : entry.members.keySet()) {
+                    barrier = entry.members.remove(id);
+                    if (barrier != null) {
+                        memberId = id;
+                        break;
+                    }
+                }
+            }
+            if (barrier == null) {
+                result.put("status", "error");
+                result.put("message", memberId == null
+                        ? "Double barrier not initialized."
+                        : "Unknown member " + memberId + " in group " + group);
+                return result;
+            }
+
+            // The member is claimed by removing it, so two callers cannot leave as the same member
+            long startTime = System.currentTimeMillis();
+            boolean left = false;
+            try {
+                left = barrier.leave(timeout, TimeUnit.SECONDS);
+            } finally {
+                if (!left) {
+                    entry.members.put(memberId, barrier);
+                }
+            }
+            long endTime = System.currentTimeMillis();
+            recordWait("double-leave", startTime, endTime);
+
+            result.put("group", group);
+            result.put("memberId", memberId);
+            result.put("left", left);
+            result.put("waitTimeMs", endTime - startTime);
+            result.put("timestamp", endTime);
+            result.put("message", left ? "Successfully left the double barrier" : "Failed to leave barrier within timeout");
+            return result;
+        } finally {
+            checkin(entry);
+        }
+    }
+
+    // ========== Tree barrier ==========
+
+    /**
+     * Enters {@code round} of {@code group}'s {@link TreeBarrier}, for rendezvous of more members
+     * than a double barrier handles well. {@code fanIn} may be null to use
+     * {@code barriers.tree.fan-in}.
+     */
+    public Map<String, Object> enterTree(String group, long round, int memberQty, Integer fanIn, long timeout) throws Exception {
+        Map<String, Object> invalid = validate(group);
+        if (invalid != null) {
+            return invalid;
+        }
+        Map<String, Object> result = new HashMap<>();
+        int k = fanIn != null ? fanIn : treeFanIn;
+        if (memberQty < 1 || k < 2 || round < 0) {
+            result.put("status", "error");
+            result.put("message", "memberQty must be at least 1, fanIn at least 2 and round not negative");
+            return result;
+        }
+        Group entry = checkout(group);
+        try {
+            TreeBarrier tree;
+            synchronized (entry) {
+                // The barrier node holds the configuration every member must match; a different
+                // one is only accepted after a reset
+                if (entry.tree == null || entry.tree.getMemberQty() != memberQty || entry.tree.getFanIn() != k) {
+                    entry.tree = new TreeBarrier(client, entry.treePath(), memberQty, k);
+                }
+                tree = entry.tree;
+            }
+
+            long startTime = System.currentTimeMillis();
+            TreeBarrier.Arrival arrival;
+            try {
+                arrival = tree.enter(round, timeout, TimeUnit.SECONDS);
+            } catch (IllegalStateException e) {
+                // Configured differently, or the round is already full
+                result.put("status", "error");
+                result.put("message", e.getMessage());
+                return result;
+            }
+            long endTime = System.currentTimeMillis();
+            recordWait("tree", startTime, endTime);
+
+            result.put("group", group);
+            result.put("entered", arrival.released());
+            result.put("round", arrival.round());
+            result.put("member", arrival.member());
+            result.put("levelsLed", arrival.levelsLed());
+            result.put("depth", TreeBarrier.depth(memberQty, k));
+            result.put("waitTimeMs", endTime - startTime);
+            result.put("timestamp", endTime);
+            result.put("message", arrival.released()
+                    ? "All " + memberQty + " members arrived"
+                    : "Tree barrier not released within timeout");
+            return result;
+        } finally {
+            checkin(entry);
+        }
+    }
+
+    /**
+     * Removes {@code group}'s tree barrier with all of its rounds, including rounds left
+     * incomplete by members that timed out, so it can be entered with a new configuration.
+     * Members still waiting in a round are not released.
+     */
+    public Map<String, Object> resetTree(String group) throws Exception {
+        Map<String, Object> invalid = validate(group);
+        if (invalid != null) {
+            return invalid;
+        }
+        Group entry = checkout(group);
+        try {
+            synchronized (entry) {
+                entry.tree = null;
+            }
+            try {
+                client.delete().deletingChildrenIfNeeded().forPath(entry.treePath());
+            } catch (KeeperException.NoNodeException e) {
+                // Never entered
+            }
+        } finally {
+            checkin(entry);
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("status", "success");
+        result.put("group", group);
+        result.put("message", "Tree barrier has been reset");
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    // ========== Simple barrier ==========
+
+    public Map<String, Object> setBarrier(String group) throws Exception {
+        Map<String, Object> invalid = validate(group);
+        if (invalid != null) {
+            return invalid;
+        }
+        Group entry = checkout(group);
+        try {
+            entry.barrier.setBarrier();
+        } finally {
+            checkin(entry);
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("status", "success");
+        result.put("group", group);
+        result.put("message", "Barrier has been set");
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    public Map<String, Object> removeBarrier(String group) throws Exception {
+        Map<String, Object> invalid = validate(group);
+        if (invalid != null) {
+            return invalid;
+        }
+        Group entry = checkout(group);
+        try {
+            entry.barrier.removeBarrier();
+        } finally {
+            checkin(entry);
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("status", "success");
+        result.put("group", group);
+        result.put("message", "Barrier has been removed");
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    public Map<String, Object> waitOnBarrier(String group, long timeout) throws Exception {
+        Map<String, Object> invalid = validate(group);
+        if (invalid != null) {
+            return invalid;
+        }
+        Map<String, Object> result = new HashMap<>();
+        Group entry = checkout(group);
+        try {
+            long startTime = System.currentTimeMillis();
+            boolean cleared = true;
+            if (timeout > 0) {
+                cleared = entry.barrier.waitOnBarrier(timeout, TimeUnit.SECONDS);
+            } else {
+                entry.barrier.waitOnBarrier();
+            }
+            long endTime = System.currentTimeMillis();
+            recordWait("simple", startTime, endTime);
+            result.put("group", group);
+            result.put("barrierCleared", cleared);
+            if (!cleared) {
+                result.put("message", "Barrier wait timed out");
+            }
+            result.put("waitTimeMs", endTime - startTime);
+            result.put("timestamp", endTime);
+            return result;
+        } finally {
+            checkin(entry);
+        }
+    }
+
+    // ========== Groups ==========
+
+    /**
+     * Returns the group and pins it against eviction. Every checkout must be paired with
+     * {@link #checkin(Group)}.
+     */
+    Group checkout(String group) {
+        return groups.compute(group, (key, entry) -> {
+            if (entry == null) {
+                entry = new Group(client, key);
+                created.incrementAndGet();
+            }
+            entry.users.incrementAndGet();
+            entry.lastUsed = System.currentTimeMillis();
+            return entry;
+        });
+    }
+
+    void checkin(Group entry) {
+        entry.lastUsed = System.currentTimeMillis();
+        entry.users.decrementAndGet();
+    }
+
+    public Map<String, Object> getGroupStatus(String group) {
+        Map<String, Object> invalid = validate(group);
+        if (invalid != null) {
+            return invalid;
+        }
+        Group entry = groups.get(group);
+        Map<String, Object> status = new HashMap<>();
+        status.put("group", group);
+        status.put("active", entry != null);
+        if (entry != null) {
+            status.put("memberQty", entry.memberQty);
+            status.put("localMembers", new ArrayList<>(entry.members.keySet()));
+            status.put("callers", entry.users.get());
+            status.put("idleMs", System.currentTimeMillis() - entry.lastUsed);
+            TreeBarrier tree = entry.tree;
+            if (tree != null) {
+                status.put("treeMemberQty", tree.getMemberQty());
+                status.put("treeFanIn", tree.getFanIn());
+            }
+        }
+        return status;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        int members = 0;
+        for (Group entry : groups.values()) {
+            members += entry.members.size();
+        }
+        status.put("activeGroups", groups.size());
+        status.put("localMembers", members);
+        status.put("created", created.get());
+        status.put("evicted", evicted.get());
+        status.put("idleTtlMs", idleTtlMs);
+        status.put("maxGroups", maxGroups);
+        status.put("treeFanIn", treeFanIn);
+        status.put("timestamp", System.currentTimeMillis());
+        return status;
+    }
+
+    void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTtlMs;
+        boolean overCapacity = groups.size() > maxGroups;
+        for (String name : groups.keySet()) {
+            if (DEFAULT_GROUP.equals(name)) {
+                // Holds the member count set through the original /double-barrier/create endpoint
+                continue;
+            }
+            boolean[] removed = new boolean[1];
+            groups.computeIfPresent(name, (key, entry) -> {
+                boolean idle = entry.users.get() == 0 && entry.members.isEmpty();
+                if (idle && (entry.lastUsed < cutoff || overCapacity)) {
+                    removed[0] = true;
+                    return null;
+                }
+                return entry;
+            });
+            if (removed[0]) {
+                evicted.incrementAndGet();
+                deleteIfEmpty(BASE_PATH + "/" + name);
+            }
+        }
+    }
+
+    // Removes the group's empty double and tree barrier nodes, then the group node if nothing
+    // is left. The simple barrier node is the barrier itself and is only removed by removeBarrier.
+    private void deleteIfEmpty(String groupPath) {
+        for (String node : List.of(groupPath + "/double", groupPath + "/tree", groupPath)) {
+            try {
+                client.delete().forPath(node);
+            } catch (KeeperException.NoNodeException | KeeperException.NotEmptyException e) {
+                // Already gone, or in use elsewhere
+            } catch (Exception e) {
+                System.out.println("Failed to clean up barrier group node " + node + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void recordWait(String barrier, long startTime, long endTime) {
+        waitTimers.computeIfAbsent(barrier, key -> Timer.builder("zk.barrier.wait")
+                        .tag("barrier", key)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(endTime - startTime, TimeUnit.MILLISECONDS);
+    }
+
+    private static Map<String, Object> validate(String group) {
+        return ZnodeNames.validate("group", group, RESERVED_GROUPS);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+    }
+
+    static final class Group {
+
+        private final String path;
+        private final DistributedBarrier barrier;
+        // memberId -> this node's members currently entered
+        private final Map<String, DistributedDoubleBarrier> members = new ConcurrentHashMap<>();
+        private final AtomicInteger users = new AtomicInteger();
+        private volatile int memberQty;
+        private volatile long lastUsed;
+        private volatile TreeBarrier tree;
+
+        Group(CuratorFramework client, String name) {
+            this.path = BASE_PATH + "/" + name;
+            this.barrier = new DistributedBarrier(client, path + "/simple");
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        private String doublePath() {
+            return path + "/double";
+        }
+
+        private String treePath() {
+            return path + "/tree";
+        }
+    }
+}
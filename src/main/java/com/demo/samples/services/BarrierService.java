@@ -1,24 +1,45 @@
 package com.demo.samples.services;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorWatcher;
 import org.apache.curator.framework.recipes.barriers.DistributedBarrier;
-import org.apache.curator.framework.recipes.barriers.DistributedDoubleBarrier;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 @Service
 public class BarrierService {
 
+    private static final String BARRIER_PATH = "/barriers/simple-barrier";
+
     private final CuratorFramework client;
+    private final MeterRegistry meterRegistry;
+    private final BarrierManager barrierManager;
     private final DistributedBarrier distributedBarrier;
-    private DistributedDoubleBarrier distributedDoubleBarrier;
+    private final Map<String, Timer> waitTimers = new ConcurrentHashMap<>();
 
-    public BarrierService(CuratorFramework client) {
+    public BarrierService(CuratorFramework client, MeterRegistry meterRegistry, BarrierManager barrierManager) {
         this.client = client;
-        this.distributedBarrier = new DistributedBarrier(client, "/barriers/simple-barrier");
+        this.meterRegistry = meterRegistry;
+        this.barrierManager = barrierManager;
+        this.distributedBarrier = new DistributedBarrier(client, BARRIER_PATH);
+    }
+
+    private void recordWait(String barrier, long startTime, long endTime) {
+        waitTimers.computeIfAbsent(barrier, key -> Timer.builder("zk.barrier.wait")
+                        .tag("barrier", key)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(endTime - startTime, TimeUnit.MILLISECONDS);
     }
 
     // ========== DistributedBarrier Methods ==========
@@ -57,69 +78,88 @@ public class BarrierService {
         }
         
         long endTime = System.currentTimeMillis();
+        recordWait("simple", startTime, endTime);
         result.put("waitTimeMs", endTime - startTime);
         result.put("timestamp", endTime);
         return result;
     }
 
-    // ========== DistributedDoubleBarrier Methods ==========
+    /**
+     * Waits for the barrier to be removed without holding a thread: the wait is parked
+     * on an exists-watch on the barrier node and the future completes from the watch callback.
+     */
+    public CompletableFuture<Map<String, Object>> waitOnBarrierAsync(long timeout) {
+        long startTime = System.currentTimeMillis();
+        CompletableFuture<Boolean> cleared = new CompletableFuture<>();
+        // One watcher object for the whole wait, so it can be removed again when the wait ends
+        CuratorWatcher watcher = new CuratorWatcher() {
+            @Override
+            public void process(WatchedEvent event) {
+                if (!cleared.isDone()) {
+                    watchBarrier(cleared, this);
+                }
+            }
+        };
+        cleared.whenComplete((success, e) -> removeWatch(watcher));
+        watchBarrier(cleared, watcher);
 
-    public Map<String, Object> createDoubleBarrier(int memberQty) {
-        Map<String, Object> result = new HashMap<>();
-        distributedDoubleBarrier = new DistributedDoubleBarrier(client, "/barriers/double-barrier", memberQty);
-        result.put("status", "success");
-        result.put("message", "Double barrier created with member quantity: " + memberQty);
-        result.put("memberQty", memberQty);
-        return result;
-    }
+        CompletableFuture<Boolean> bounded = timeout > 0
+                ? cleared.completeOnTimeout(false, timeout, TimeUnit.SECONDS)
+                : cleared;
 
-    public Map<String, Object> enterDoubleBarrier(long timeout) throws Exception {
-        Map<String, Object> result = new HashMap<>();
-        if (distributedDoubleBarrier == null) {
-            result.put("status", "error");
-            result.put("message", "Double barrier not initialized. Call /create-double-barrier first.");
+        return bounded.thenApply(success -> {
+            Map<String, Object> result = new HashMap<>();
+            result.put("barrierCleared", success);
+            if (!success) {
+                result.put("message", "Barrier wait timed out");
+            }
+            long endTime = System.currentTimeMillis();
+            recordWait("simple", startTime, endTime);
+            result.put("waitTimeMs", endTime - startTime);
+            result.put("timestamp", endTime);
             return result;
-        }
+        });
+    }
 
-        long startTime = System.currentTimeMillis();
-        boolean entered = distributedDoubleBarrier.enter(timeout, TimeUnit.SECONDS);
-        long endTime = System.currentTimeMillis();
-        
-        result.put("entered", entered);
-        result.put("waitTimeMs", endTime - startTime);
-        result.put("timestamp", endTime);
-        
-        if (entered) {
-            result.put("message", "Successfully entered the double barrier");
-        } else {
-            result.put("message", "Failed to enter barrier within timeout");
+    private void watchBarrier(CompletableFuture<Boolean> cleared, CuratorWatcher watcher) {
+        try {
+            client.checkExists()
+                    .usingWatcher(watcher)
+                    .inBackground((c, event) -> {
+                        int rc = event.getResultCode();
+                        if (rc == KeeperException.Code.NONODE.intValue()) {
+                            cleared.complete(true);
+                        } else if (rc != KeeperException.Code.OK.intValue()) {
+                            cleared.completeExceptionally(KeeperException.create(KeeperException.Code.get(rc), BARRIER_PATH));
+                        }
+                    })
+                    .forPath(BARRIER_PATH);
+        } catch (Exception e) {
+            cleared.completeExceptionally(e);
         }
-        
-        return result;
     }
 
-    public Map<String, Object> leaveDoubleBarrier(long timeout) throws Exception {
-        Map<String, Object> result = new HashMap<>();
-        if (distributedDoubleBarrier == null) {
-            result.put("status", "error");
-            result.put("message", "Double barrier not initialized.");
-            return result;
+    // A timed-out or cleared wait still has an exists-watch registered on the barrier node
+    private void removeWatch(CuratorWatcher watcher) {
+        try {
+            client.watchers().remove(watcher).ofType(Watcher.WatcherType.Any).quietly().inBackground().forPath(BARRIER_PATH);
+        } catch (Exception e) {
+            System.out.println("Failed to remove barrier watch: " + e.getMessage());
         }
+    }
 
-        long startTime = System.currentTimeMillis();
-        boolean left = distributedDoubleBarrier.leave(timeout, TimeUnit.SECONDS);
-        long endTime = System.currentTimeMillis();
-        
-        result.put("left", left);
-        result.put("waitTimeMs", endTime - startTime);
-        result.put("timestamp", endTime);
-        
-        if (left) {
-            result.put("message", "Successfully left the double barrier");
-        } else {
-            result.put("message", "Failed to leave barrier within timeout");
-        }
-        
-        return result;
+    // ========== DistributedDoubleBarrier Methods ==========
+    // The single double barrier of the original endpoints is the "default" group of BarrierManager
+
+    public Map<String, Object> createDoubleBarrier(int memberQty) {
+        return barrierManager.configureDouble(BarrierManager.DEFAULT_GROUP, memberQty);
+    }
+
+    public Map<String, Object> enterDoubleBarrier(long timeout) throws Exception {
+        return barrierManager.enterDouble(BarrierManager.DEFAULT_GROUP, null, timeout);
+    }
+
+    public Map<String, Object> leaveDoubleBarrier(long timeout) throws Exception {
+        return barrierManager.leaveDouble(BarrierManager.DEFAULT_GROUP, null, timeout);
     }
 }
@@ -0,0 +1,175 @@
+package com.demo.samples.services;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.x.discovery.ServiceCache;
+import org.apache.curator.x.discovery.ServiceDiscovery;
+import org.apache.curator.x.discovery.ServiceInstance;
+import org.apache.curator.x.discovery.details.ServiceCacheListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Watch-maintained view of the registered {@code order-service} instances.
+ * <p>
+ * A Curator {@link ServiceCache} keeps the instances up to date; on every change an
+ * immutable snapshot is rebuilt and swapped in, so lookups never go to ZooKeeper.
+ */
+@Service
+public class CachedServiceDiscovery {
+
+    public static final String SERVICE_NAME = "order-service";
+
+    public enum Strategy {
+        ROUND_ROBIN, RANDOM, LEAST_RECENTLY_USED, STICKY;
+
+        /**
+         * The strategy named {@code name} (e.g. {@code round-robin}), or null if there is none.
+         */
+        public static Strategy fromName(String name) {
+            String constant = name.trim().toUpperCase().replace('-', '_');
+            for (Strategy strategy : values()) {
+                if (strategy.name().equals(constant)) {
+                    return strategy;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final ServiceDiscovery<Void> serviceDiscovery;
+    private ServiceCache<Void> serviceCache;
+
+    private volatile List<ServiceInstance<Void>> snapshot = List.of();
+    private final AtomicLong snapshotVersion = new AtomicLong();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger roundRobinIndex = new AtomicInteger();
+    private final Map<String, Long> lastUsed = new ConcurrentHashMap<>();
+    private final AtomicReference<ServiceInstance<Void>> sticky = new AtomicReference<>();
+
+    public CachedServiceDiscovery(ServiceDiscovery<Void> serviceDiscovery) {
+        this.serviceDiscovery = serviceDiscovery;
+    }
+
+    @PostConstruct
+    public void init() throws Exception {
+        serviceCache = serviceDiscovery.serviceCacheBuilder()
+                .name(SERVICE_NAME)
+                .build();
+        serviceCache.addListener(new ServiceCacheListener() {
+            @Override
+            public void cacheChanged() {
+                refreshSnapshot();
+            }
+
+            @Override
+            public void stateChanged(CuratorFramework client, ConnectionState newState) {
+                System.out.println("Service cache connection state changed to: " + newState);
+            }
+        });
+        serviceCache.start();
+        refreshSnapshot();
+    }
+
+    // Called from init and from the cache listener; serialized so an older view is never installed last
+    private synchronized void refreshSnapshot() {
+        List<ServiceInstance<Void>> instances = new ArrayList<>(serviceCache.getInstances());
+        instances.sort(Comparator.comparing(ServiceInstance::getId));
+        snapshot = List.copyOf(instances);
+        snapshotVersion.incrementAndGet();
+        Set<String> ids = new HashSet<>();
+        instances.forEach(instance -> ids.add(instance.getId()));
+        lastUsed.keySet().retainAll(ids);
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Registers a callback invoked after every snapshot swap.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public List<ServiceInstance<Void>> getInstances() {
+        return snapshot;
+    }
+
+    public long getSnapshotVersion() {
+        return snapshotVersion.get();
+    }
+
+    public ServiceInstance<Void> pick(Strategy strategy) {
+        List<ServiceInstance<Void>> instances = snapshot;
+        if (instances.isEmpty()) {
+            return null;
+        }
+        switch (strategy) {
+            case RANDOM:
+                return instances.get(ThreadLocalRandom.current().nextInt(instances.size()));
+            case LEAST_RECENTLY_USED:
+                return pickLeastRecentlyUsed(instances);
+            case STICKY:
+                return pickSticky(instances);
+            case ROUND_ROBIN:
+            default:
+                return instances.get(Math.floorMod(roundRobinIndex.getAndIncrement(), instances.size()));
+        }
+    }
+
+    private ServiceInstance<Void> pickLeastRecentlyUsed(List<ServiceInstance<Void>> instances) {
+        ServiceInstance<Void> oldest = instances.get(0);
+        long oldestUse = Long.MAX_VALUE;
+        for (ServiceInstance<Void> instance : instances) {
+            long used = lastUsed.getOrDefault(instance.getId(), Long.MIN_VALUE);
+            if (used < oldestUse) {
+                oldest = instance;
+                oldestUse = used;
+            }
+        }
+        lastUsed.put(oldest.getId(), System.nanoTime());
+        return oldest;
+    }
+
+    private ServiceInstance<Void> pickSticky(List<ServiceInstance<Void>> instances) {
+        ServiceInstance<Void> current = sticky.get();
+        if (current != null && instances.contains(current)) {
+            return current;
+        }
+        ServiceInstance<Void> next = instances.get(ThreadLocalRandom.current().nextInt(instances.size()));
+        sticky.compareAndSet(current, next);
+        return sticky.get();
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("serviceName", SERVICE_NAME);
+        status.put("instances", snapshot.size());
+        status.put("snapshotVersion", snapshotVersion.get());
+        return status;
+    }
+
+    @PreDestroy
+    public void cleanup() throws Exception {
+        if (serviceCache != null) {
+            serviceCache.close();
+        }
+    }
+}
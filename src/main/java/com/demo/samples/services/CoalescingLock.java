@@ -0,0 +1,142 @@
+package com.demo.samples.services;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Distributed mutex with a local fair queue in front of ZooKeeper.
+ * <p>
+ * Threads in this JVM queue on a fair {@link Semaphore}; only the head of the queue
+ * contends in ZooKeeper. On release the ZooKeeper lease is handed to the next local
+ * waiter instead of being released, until {@code maxHandoffs} consecutive handoffs
+ * have happened, after which the lease is released so other nodes get a turn. A lease kept
+ * for a waiter that gave up in the meantime is released by whichever of the two gets there
+ * last.
+ * <p>
+ * {@link InterProcessSemaphoreMutex} is used because its lease is not bound to the
+ * thread that acquired it, which is what makes the handoff possible. The lock is
+ * therefore not reentrant.
+ */
+public class CoalescingLock {
+
+    private final InterProcessSemaphoreMutex zkLock;
+    private final Semaphore localLock = new Semaphore(1, true);
+    private final int maxHandoffs;
+
+    // Guarded by localLock
+    private volatile boolean zkLeaseHeld;
+    private int handoffs;
+    private final AtomicBoolean held = new AtomicBoolean();
+
+    private final AtomicLong zkAcquires = new AtomicLong();
+    private final AtomicLong localHandoffs = new AtomicLong();
+
+    public CoalescingLock(CuratorFramework client, String path, int maxHandoffs) {
+        this.zkLock = new InterProcessSemaphoreMutex(client, path);
+        this.maxHandoffs = maxHandoffs;
+    }
+
+    public boolean acquire(long time, TimeUnit unit) throws Exception {
+        long deadline = System.nanoTime() + unit.toNanos(time);
+        if (!localLock.tryAcquire(time, unit)) {
+            // A handoff may have been meant for us; don't leave the lease without an owner
+            dropIdleLease();
+            return false;
+        }
+        if (zkLeaseHeld) {
+            held.set(true);
+            return true;
+        }
+        boolean acquired = false;
+        try {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            acquired = zkLock.acquire(remaining, TimeUnit.NANOSECONDS);
+            if (acquired) {
+                zkLeaseHeld = true;
+                handoffs = 0;
+                zkAcquires.incrementAndGet();
+                held.set(true);
+            }
+            return acquired;
+        } finally {
+            if (!acquired) {
+                localLock.release();
+            }
+        }
+    }
+
+    /**
+     * Releases the lock held by this process. The lock is not bound to the acquiring thread,
+     * so any thread may release it, but only once per acquire.
+     */
+    public void release() throws Exception {
+        if (!held.compareAndSet(true, false)) {
+            throw new IllegalMonitorStateException("Lock is not held");
+        }
+        boolean handedOff = false;
+        try {
+            if (localLock.hasQueuedThreads() && handoffs < maxHandoffs) {
+                // Keep the ZooKeeper lease and pass it to the next local waiter
+                handoffs++;
+                handedOff = true;
+                localHandoffs.incrementAndGet();
+            } else {
+                zkLeaseHeld = false;
+                handoffs = 0;
+                zkLock.release();
+            }
+        } finally {
+            localLock.release();
+        }
+        if (handedOff) {
+            // The waiter may have timed out after hasQueuedThreads(); if nobody took the permit, give up the lease
+            dropIdleLease();
+        }
+    }
+
+    /**
+     * Releases the ZooKeeper lease if it is held but no local thread holds or waits for the lock.
+     * The fair {@code tryAcquire} fails while any waiter is queued, and each waiter that gives up
+     * calls this again on its way out.
+     */
+    private void dropIdleLease() throws Exception {
+        if (!zkLeaseHeld || !localLock.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+            return;
+        }
+        try {
+            if (zkLeaseHeld) {
+                // Curator forgets the lease even if deleting its node fails; the node then goes with the session
+                zkLeaseHeld = false;
+                handoffs = 0;
+                zkLock.release();
+            }
+        } finally {
+            localLock.release();
+        }
+    }
+
+    public boolean isHeld() {
+        return held.get();
+    }
+
+    public boolean isAcquiredInThisProcess() {
+        return zkLock.isAcquiredInThisProcess();
+    }
+
+    public int getLocalQueueLength() {
+        return localLock.getQueueLength();
+    }
+
+    public long getZkAcquires() {
+        return zkAcquires.get();
+    }
+
+    public long getLocalHandoffs() {
+        return localHandoffs.get();
+    }
+}
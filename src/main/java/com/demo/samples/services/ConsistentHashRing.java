@@ -0,0 +1,139 @@
+package com.demo.samples.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Maps a fixed number of partitions onto members with a consistent-hash ring.
+ * <p>
+ * Each member is placed on the ring at {@code virtualNodes} points. A partition belongs
+ * to the member owning the first point at or after the partition's own point, so a
+ * membership change only moves the partitions in the arcs next to the changed points.
+ * The result is published as an immutable {@link Assignment} whose owners are an
+ * {@code int[]} indexed by partition, so lookups are a hash and two array reads.
+ */
+public class ConsistentHashRing {
+
+    /**
+     * @param members sorted member ids
+     * @param owners  index into {@code members} per partition, -1 when there are no members
+     */
+    public record Assignment(String[] members, int[] owners, long version) {
+
+        public String ownerOfPartition(int partition) {
+            int owner = owners[partition];
+            return owner >= 0 ? members[owner] : null;
+        }
+    }
+
+    private final int partitions;
+    private final int virtualNodes;
+    private final long[] partitionPoints;
+    // Only touched under this object's lock
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final Set<String> members = new HashSet<>();
+    private volatile Assignment assignment;
+
+    public ConsistentHashRing(int partitions, int virtualNodes) {
+        this.partitions = partitions;
+        this.virtualNodes = virtualNodes;
+        this.partitionPoints = new long[partitions];
+        for (int p = 0; p < partitions; p++) {
+            partitionPoints[p] = hash("partition-" + p);
+        }
+        int[] owners = new int[partitions];
+        Arrays.fill(owners, -1);
+        this.assignment = new Assignment(new String[0], owners, 0);
+    }
+
+    /**
+     * Moves the ring to the given membership, adding and removing only the virtual nodes
+     * of members that changed.
+     *
+     * @return number of partitions whose owner changed
+     */
+    public synchronized int update(Collection<String> newMembers) {
+        Set<String> target = new HashSet<>(newMembers);
+        for (String member : new HashSet<>(members)) {
+            if (!target.contains(member)) {
+                for (int v = 0; v < virtualNodes; v++) {
+                    ring.remove(hash(member + "#" + v), member);
+                }
+                members.remove(member);
+            }
+        }
+        for (String member : target) {
+            if (members.add(member)) {
+                for (int v = 0; v < virtualNodes; v++) {
+                    // On the (unlikely) collision the lower id keeps the point, independent of join order
+                    ring.merge(hash(member + "#" + v), member, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+                }
+            }
+        }
+
+        Assignment previous = assignment;
+        String[] memberIds = members.toArray(new String[0]);
+        Arrays.sort(memberIds);
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < memberIds.length; i++) {
+            index.put(memberIds[i], i);
+        }
+
+        int[] owners = new int[partitions];
+        int moved = 0;
+        for (int p = 0; p < partitions; p++) {
+            String owner = null;
+            if (!ring.isEmpty()) {
+                Map.Entry<Long, String> entry = ring.ceilingEntry(partitionPoints[p]);
+                owner = (entry != null ? entry : ring.firstEntry()).getValue();
+            }
+            owners[p] = owner != null ? index.get(owner) : -1;
+            String previousOwner = previous.ownerOfPartition(p);
+            if (previousOwner == null ? owner != null : !previousOwner.equals(owner)) {
+                moved++;
+            }
+        }
+        assignment = new Assignment(memberIds, owners, previous.version() + 1);
+        return moved;
+    }
+
+    public int partitionOf(String key) {
+        return (int) Math.floorMod(hash(key), (long) partitions);
+    }
+
+    /**
+     * Owner of {@code key}, or null when the ring has no members.
+     */
+    public String ownerOf(String key) {
+        return assignment.ownerOfPartition(partitionOf(key));
+    }
+
+    public Assignment getAssignment() {
+        return assignment;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    // 64-bit FNV-1a, finished with the MurmurHash3 fmix64 step to spread nearby inputs
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
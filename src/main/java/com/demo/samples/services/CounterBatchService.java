@@ -0,0 +1,239 @@
+package com.demo.samples.services;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.zookeeper.KeeperException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies a list of counter mutations atomically in one ZooKeeper transaction.
+ * <p>
+ * Current values are read with a single read-only multi, the mutations are applied
+ * locally, and every touched counter is written back in one {@code multi} guarded by
+ * the versions that were read. If another writer got in between, the whole batch is
+ * retried; a failed CAS fails the whole batch without writing anything.
+ * <p>
+ * In sharded mode the {@code atomic-long} counter is the sum of its base znode and shards.
+ * Its shards are read in the same multi, and a write puts the new value minus the shards
+ * into the base znode, guarded by a version check on every shard. Deltas still buffered by
+ * other instances are not included.
+ */
+@Service
+public class CounterBatchService {
+
+    private static final String BASE_PATH = "/counters";
+    private static final String ATOMIC_LONG = "atomic-long";
+    private static final String SHARED_COUNT = "shared-count";
+
+    private final CuratorFramework client;
+    private final SharedCounterService sharedCounterService;
+
+    @Value("${counter.batch.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${counter.batch.max-size:1000}")
+    private int maxSize;
+
+    public CounterBatchService(CuratorFramework client, SharedCounterService sharedCounterService) {
+        this.client = client;
+        this.sharedCounterService = sharedCounterService;
+    }
+
+    public Map<String, Object> applyBatch(List<CounterMutation> mutations) throws Exception {
+        Map<String, Object> result = new HashMap<>();
+        String error = validate(mutations);
+        if (error != null) {
+            result.put("status", "error");
+            result.put("message", error);
+            return result;
+        }
+
+        Map<String, String> types = new LinkedHashMap<>();
+        for (CounterMutation mutation : mutations) {
+            types.put(BASE_PATH + "/" + mutation.counter(), mutation.type());
+        }
+        client.createContainers(BASE_PATH);
+        ShardedAtomicLong sharded = sharedCounterService.getShardedAtomicLong();
+        List<String> shardPaths = List.of();
+        if (sharded != null && ATOMIC_LONG.equals(types.get(sharded.getBasePath()))) {
+            shardPaths = sharded.getShardPaths();
+            sharded.initializeShards();
+        }
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            List<String> paths = new ArrayList<>(types.keySet());
+            List<String> readPaths = new ArrayList<>(paths);
+            readPaths.addAll(shardPaths);
+            Map<String, MultiRead.NodeData> current = new HashMap<>();
+            for (MultiRead.NodeData node : MultiRead.getData(client, readPaths)) {
+                current.put(node.path(), node);
+            }
+            long shardSum = 0;
+            for (String shardPath : shardPaths) {
+                shardSum += ShardedAtomicLong.valueOf(current.get(shardPath));
+            }
+
+            Map<String, Long> values = new HashMap<>();
+            for (String path : paths) {
+                byte[] data = current.get(path).data();
+                if (data != null && data.length > 0 && data.length != encodedLength(types.get(path))) {
+                    result.put("status", "error");
+                    result.put("message", "Counter " + path + " holds " + data.length + " bytes and is not a " + types.get(path));
+                    return result;
+                }
+                long value = decode(types.get(path), data);
+                values.put(path, !shardPaths.isEmpty() && path.equals(sharded.getBasePath()) ? value + shardSum : value);
+            }
+
+            List<Map<String, Object>> opResults = new ArrayList<>();
+            boolean casFailed = false;
+            for (int i = 0; i < mutations.size(); i++) {
+                CounterMutation mutation = mutations.get(i);
+                String path = BASE_PATH + "/" + mutation.counter();
+                long pre = values.get(path);
+                long post;
+                boolean succeeded = true;
+                switch (mutation.op()) {
+                    case "add":
+                        post = pre + mutation.value();
+                        break;
+                    case "set":
+                        post = mutation.value();
+                        break;
+                    default:
+                        succeeded = pre == mutation.expected();
+                        post = succeeded ? mutation.value() : pre;
+                        casFailed |= !succeeded;
+                        break;
+                }
+                values.put(path, post);
+                opResults.add(opResult(i, mutation, pre, post, succeeded));
+            }
+
+            if (casFailed) {
+                result.put("status", "failed");
+                result.put("message", "Compare-and-set mismatch, no counters were changed");
+                result.put("attempts", attempt);
+                result.put("results", opResults);
+                result.put("timestamp", System.currentTimeMillis());
+                return result;
+            }
+
+            List<CuratorOp> ops = new ArrayList<>(paths.size() + shardPaths.size());
+            for (String shardPath : shardPaths) {
+                ops.add(client.transactionOp().check().withVersion(current.get(shardPath).stat().getVersion()).forPath(shardPath));
+            }
+            for (String path : paths) {
+                long value = values.get(path);
+                if (SHARED_COUNT.equals(types.get(path)) && (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)) {
+                    result.put("status", "error");
+                    result.put("message", "Shared count " + path + " would overflow int: " + value);
+                    result.put("results", opResults);
+                    return result;
+                }
+                if (!shardPaths.isEmpty() && path.equals(sharded.getBasePath())) {
+                    // The shards keep their values; the base makes up the difference
+                    value -= shardSum;
+                }
+                byte[] bytes = encode(types.get(path), value);
+                MultiRead.NodeData node = current.get(path);
+                if (node.exists()) {
+                    ops.add(client.transactionOp().setData().withVersion(node.stat().getVersion()).forPath(path, bytes));
+                } else {
+                    ops.add(client.transactionOp().create().forPath(path, bytes));
+                }
+            }
+
+            try {
+                client.transaction().forOperations(ops);
+            } catch (KeeperException.BadVersionException | KeeperException.NodeExistsException e) {
+                // A concurrent writer changed one of the counters; re-read and retry
+                continue;
+            }
+
+            result.put("status", "success");
+            result.put("attempts", attempt);
+            result.put("counters", paths.size());
+            result.put("results", opResults);
+            result.put("timestamp", System.currentTimeMillis());
+            return result;
+        }
+
+        result.put("status", "failed");
+        result.put("message", "Batch retry exhausted after " + maxAttempts + " attempts");
+        result.put("attempts", maxAttempts);
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    private String validate(List<CounterMutation> mutations) {
+        if (mutations == null || mutations.isEmpty()) {
+            return "Batch is empty";
+        }
+        if (mutations.size() > maxSize) {
+            return "Batch exceeds " + maxSize + " mutations";
+        }
+        Map<String, String> types = new HashMap<>();
+        for (CounterMutation mutation : mutations) {
+            String counter = mutation.counter();
+            String invalid = ZnodeNames.check("counter", counter, Set.of());
+            if (invalid != null) {
+                return invalid;
+            }
+            if (!ATOMIC_LONG.equals(mutation.type()) && !SHARED_COUNT.equals(mutation.type())) {
+                return "Unknown counter type: " + mutation.type();
+            }
+            String previous = types.putIfAbsent(mutation.counter(), mutation.type());
+            if (previous != null && !previous.equals(mutation.type())) {
+                return "Counter " + mutation.counter() + " used with two types";
+            }
+            if (!"add".equals(mutation.op()) && !"set".equals(mutation.op()) && !"cas".equals(mutation.op())) {
+                return "Unknown op: " + mutation.op();
+            }
+            if ("cas".equals(mutation.op()) && mutation.expected() == null) {
+                return "cas on " + mutation.counter() + " requires an expected value";
+            }
+        }
+        return null;
+    }
+
+    private Map<String, Object> opResult(int index, CounterMutation mutation, long pre, long post, boolean succeeded) {
+        Map<String, Object> opResult = new HashMap<>();
+        opResult.put("index", index);
+        opResult.put("counter", mutation.counter());
+        opResult.put("op", mutation.op());
+        opResult.put("succeeded", succeeded);
+        opResult.put("preValue", pre);
+        opResult.put("postValue", post);
+        return opResult;
+    }
+
+    // Same encodings as DistributedAtomicLong (8-byte long) and SharedCount (4-byte int)
+    private static long decode(String type, byte[] data) {
+        if (data == null || data.length == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        return SHARED_COUNT.equals(type) ? buffer.getInt() : buffer.getLong();
+    }
+
+    private static int encodedLength(String type) {
+        return SHARED_COUNT.equals(type) ? Integer.BYTES : Long.BYTES;
+    }
+
+    private static byte[] encode(String type, long value) {
+        if (SHARED_COUNT.equals(type)) {
+            return ByteBuffer.allocate(Integer.BYTES).putInt((int) value).array();
+        }
+        return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+    }
+}
@@ -0,0 +1,13 @@
+package com.demo.samples.services;
+
+/**
+ * One counter update in a batch.
+ *
+ * @param counter  counter name, stored at {@code /counters/<counter>}
+ * @param type     {@code atomic-long} (DistributedAtomicLong encoding) or {@code shared-count} (SharedCount encoding)
+ * @param op       {@code add}, {@code set} or {@code cas}
+ * @param value    delta for add, new value for set and cas
+ * @param expected expected current value, cas only
+ */
+public record CounterMutation(String counter, String type, String op, long value, Long expected) {
+}
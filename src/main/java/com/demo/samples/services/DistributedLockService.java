@@ -1,27 +1,72 @@
 package com.demo.samples.services;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.curator.framework.CuratorFramework;
-import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.zookeeper.KeeperException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @Service
 public class DistributedLockService {
 
+    // InterProcessSemaphoreMutex layout (leases/ and locks/). Older releases kept an InterProcessMutex at
+    // LEGACY_LOCK_PATH; the two do not exclude each other, so instances on both must not run together.
+    public static final String LOCK_PATH = "/locks/distributed-mutex";
+    private static final String LEGACY_LOCK_PATH = "/locks/distributed-lock";
+
     private final CuratorFramework client;
-    private final InterProcessMutex lock;
+    private final CoalescingLock lock;
+    private final LockRegistry lockRegistry;
+    private final LockIntrospectionService lockIntrospection;
+    private final LockMetrics metrics;
+    private final LockMetrics resourceMetrics;
+    private volatile long heldSinceNanos;
 
-    public DistributedLockService(CuratorFramework client) {
+    public DistributedLockService(CuratorFramework client, LockRegistry lockRegistry, LockIntrospectionService lockIntrospection,
+                                  MeterRegistry meterRegistry, @Value("${lock.max-local-handoffs:16}") int maxLocalHandoffs) {
         this.client = client;
-        this.lock = new InterProcessMutex(client, "/locks/distributed-lock");
+        this.lockRegistry = lockRegistry;
+        this.lockIntrospection = lockIntrospection;
+        // Local threads queue in-JVM; only the head of the queue contends in ZooKeeper
+        this.lock = new CoalescingLock(client, LOCK_PATH, maxLocalHandoffs);
+        this.metrics = new LockMetrics(meterRegistry, "mutex");
+        this.resourceMetrics = new LockMetrics(meterRegistry, "resource-mutex");
+        Gauge.builder("zk.lock.queue.depth", lock, CoalescingLock::getLocalQueueLength)
+                .tag("lock", "mutex")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void checkLegacyLock() {
+        try {
+            List<String> legacy = client.getChildren().forPath(LEGACY_LOCK_PATH);
+            if (!legacy.isEmpty()) {
+                System.out.println("WARNING: " + legacy.size() + " lock nodes under " + LEGACY_LOCK_PATH
+                        + " - an instance of an older release is using the mutex, which does not exclude "
+                        + LOCK_PATH + ". Stop all older instances before upgrading.");
+            }
+        } catch (KeeperException.NoNodeException e) {
+            // No older instance has used the mutex
+        } catch (Exception e) {
+            System.out.println("Could not check " + LEGACY_LOCK_PATH + ": " + e.getMessage());
+        }
     }
 
     public Map<String, Object> acquireLock(long timeout) throws Exception {
         Map<String, Object> result = new HashMap<>();
+        long waitStart = System.nanoTime();
         boolean acquired = lock.acquire(timeout, TimeUnit.SECONDS);
+        metrics.recordAcquire(waitStart, acquired);
+        if (acquired) {
+            heldSinceNanos = System.nanoTime();
+        }
         result.put("lockAcquired", acquired);
         result.put("isAcquiredInThisProcess", lock.isAcquiredInThisProcess());
         result.put("timestamp", System.currentTimeMillis());
@@ -30,8 +75,10 @@ public class DistributedLockService {
 
     public Map<String, Object> releaseLock() throws Exception {
         Map<String, Object> result = new HashMap<>();
-        if (lock.isAcquiredInThisProcess()) {
+        if (lock.isHeld()) {
+            long heldSince = heldSinceNanos;
             lock.release();
+            metrics.recordHold(heldSince);
             result.put("lockReleased", true);
         } else {
             result.put("lockReleased", false);
@@ -44,13 +91,40 @@ public class DistributedLockService {
     public Map<String, Object> getLockStatus() {
         Map<String, Object> status = new HashMap<>();
         status.put("isAcquiredInThisProcess", lock.isAcquiredInThisProcess());
+        status.put("localQueueLength", lock.getLocalQueueLength());
+        status.put("zkAcquires", lock.getZkAcquires());
+        status.put("localHandoffs", lock.getLocalHandoffs());
+        Map<String, Object> zk = lockIntrospection.inspect(LOCK_PATH);
+        status.put("holders", zk.get("holders"));
+        status.put("waiters", zk.get("waiters"));
+        status.put("oldestWaitMs", zk.get("oldestWaitMs"));
         return status;
     }
 
     public Map<String, Object> performCriticalSection(String operation) throws Exception {
+        return performCriticalSection(operation, lock, metrics);
+    }
+
+    public Map<String, Object> performCriticalSection(String operation, String resource) throws Exception {
+        LockRegistry.LockEntry entry = lockRegistry.checkout(resource);
+        try {
+            Map<String, Object> result = performCriticalSection(operation, entry.getMutex(), resourceMetrics);
+            result.put("resource", resource);
+            result.put("lockPath", entry.getPath());
+            return result;
+        } finally {
+            lockRegistry.checkin(entry);
+        }
+    }
+
+    private Map<String, Object> performCriticalSection(String operation, CoalescingLock lock, LockMetrics metrics) throws Exception {
         Map<String, Object> result = new HashMap<>();
         
-        if (lock.acquire(10, TimeUnit.SECONDS)) {
+        long waitStart = System.nanoTime();
+        boolean acquired = lock.acquire(10, TimeUnit.SECONDS);
+        metrics.recordAcquire(waitStart, acquired);
+        if (acquired) {
+            long acquiredAt = System.nanoTime();
             try {
                 // Simulate critical section work
                 Thread.sleep(2000);
@@ -59,6 +133,7 @@ public class DistributedLockService {
                 result.put("message", "Critical section executed successfully");
             } finally {
                 lock.release();
+                metrics.recordHold(acquiredAt);
             }
         } else {
             result.put("status", "failed");
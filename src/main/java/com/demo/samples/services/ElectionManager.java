@@ -0,0 +1,288 @@
+package com.demo.samples.services;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.curator.framework.recipes.leader.LeaderLatch;
+import org.apache.curator.framework.recipes.leader.LeaderLatchListener;
+import org.apache.curator.utils.ZKPaths;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs any number of named elections ({@code /elections/<group>}) on the shared Curator
+ * session.
+ * <p>
+ * Each group is a {@link LeaderLatch}, which is driven by watches rather than a thread of
+ * its own; latch callbacks run on a pool of {@code elections.executor-threads}, so a burst of
+ * leadership changes across many groups cannot grow the thread count. Groups are joined on first
+ * use. A node leading {@code elections.max-leaderships-per-node} groups gives up any further
+ * group it wins, as long as someone else is waiting, and rejoins it after
+ * {@code elections.rejoin-delay-ms}.
+ * <p>
+ * One {@link CuratorCache} over {@code /elections} keeps {@link #getLeadersByGroup()} current
+ * for every group, including those this node has not joined.
+ */
+@Service
+public class ElectionManager {
+
+    private static final String BASE_PATH = "/elections";
+    private static final String LATCH_MARKER = "latch-";
+    // GET /elections/status is the manager's own status, so no group can be read under that name
+    private static final Set<String> RESERVED_GROUPS = Set.of("status");
+
+    private final CuratorFramework client;
+    private ExecutorService electionExecutor;
+    private final String nodeId = "node-" + UUID.randomUUID();
+    private final Map<String, LeaderLatch> latches = new ConcurrentHashMap<>();
+    private final Set<String> leading = ConcurrentHashMap.newKeySet();
+    // Groups given up over the cap and waiting to be rejoined
+    private final Set<String> yielded = ConcurrentHashMap.newKeySet();
+    // group -> (sequence -> participant id), maintained from the cache
+    private final Map<String, TreeMap<String, String>> participants = new ConcurrentHashMap<>();
+    private final Map<String, String> leadersByGroup = new ConcurrentHashMap<>();
+    private final AtomicLong yields = new AtomicLong();
+    private CuratorCache cache;
+    private ScheduledExecutorService rejoinScheduler;
+
+    @Value("${elections.max-leaderships-per-node:0}")
+    private int maxLeadershipsPerNode;
+
+    @Value("${elections.rejoin-delay-ms:5000}")
+    private long rejoinDelayMs;
+
+    @Value("${elections.executor-threads:4}")
+    private int executorThreads;
+
+    public ElectionManager(CuratorFramework client) {
+        this.client = client;
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(executorThreads, executorThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "election-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        electionExecutor = executor;
+        rejoinScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "election-rejoin");
+            t.setDaemon(true);
+            return t;
+        });
+        cache = CuratorCache.build(client, BASE_PATH);
+        cache.listenable().addListener(CuratorCacheListener.builder()
+                .forCreates(node -> onParticipant(node, true))
+                .forDeletes(node -> onParticipant(node, false))
+                .build());
+        cache.start();
+    }
+
+    private void onParticipant(ChildData node, boolean created) {
+        ZKPaths.PathAndNode pathAndNode = ZKPaths.getPathAndNode(node.getPath());
+        int marker = pathAndNode.getNode().lastIndexOf(LATCH_MARKER);
+        // Only latch nodes directly under a group
+        if (marker < 0 || !ZKPaths.getPathAndNode(pathAndNode.getPath()).getPath().equals(BASE_PATH)) {
+            return;
+        }
+        String group = ZKPaths.getNodeFromPath(pathAndNode.getPath());
+        String sequence = pathAndNode.getNode().substring(marker + LATCH_MARKER.length());
+        participants.compute(group, (key, members) -> {
+            if (members == null) {
+                members = new TreeMap<>();
+            }
+            if (created) {
+                members.put(sequence, node.getData() != null ? new String(node.getData()) : "");
+            } else {
+                members.remove(sequence);
+            }
+            // Same rule as LeaderLatch: the lowest sequence number leads
+            if (members.isEmpty()) {
+                leadersByGroup.remove(group);
+                return null;
+            }
+            leadersByGroup.put(group, members.firstEntry().getValue());
+            return members;
+        });
+        if (created && leading.contains(group)) {
+            electionExecutor.execute(() -> yieldIfOverCap(group));
+        }
+    }
+
+    /**
+     * Joins the election for {@code group} if this node has not joined it yet.
+     */
+    public Map<String, Object> join(String group) throws Exception {
+        Map<String, Object> invalid = validate(group);
+        if (invalid != null) {
+            return invalid;
+        }
+        boolean joined = ensureJoined(group);
+        Map<String, Object> result = getGroupStatus(group);
+        result.put("status", "success");
+        result.put("newlyJoined", joined);
+        return result;
+    }
+
+    public Map<String, Object> leave(String group) throws Exception {
+        Map<String, Object> invalid = validate(group);
+        if (invalid != null) {
+            return invalid;
+        }
+        yielded.remove(group);
+        LeaderLatch latch = latches.remove(group);
+        Map<String, Object> result = new HashMap<>();
+        if (latch != null) {
+            leading.remove(group);
+            latch.close();
+        }
+        result.put("status", "success");
+        result.put("group", group);
+        result.put("left", latch != null);
+        return result;
+    }
+
+    private boolean ensureJoined(String group) throws Exception {
+        if (latches.containsKey(group)) {
+            return false;
+        }
+        LeaderLatch latch = new LeaderLatch(client, BASE_PATH + "/" + group, nodeId);
+        if (latches.putIfAbsent(group, latch) != null) {
+            return false;
+        }
+        latch.addListener(new LeaderLatchListener() {
+            @Override
+            public void isLeader() {
+                leading.add(group);
+                yieldIfOverCap(group);
+            }
+
+            @Override
+            public void notLeader() {
+                leading.remove(group);
+            }
+        }, electionExecutor);
+        try {
+            latch.start();
+        } catch (Exception e) {
+            // Let the next join try again instead of finding a latch that never started
+            latches.remove(group, latch);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Over the cap and someone else is waiting: hand {@code group} to the next participant
+     * and queue up again later. Checked on winning a group and when a participant joins one;
+     * synchronized so concurrent checks do not all yield at once.
+     */
+    private synchronized void yieldIfOverCap(String group) {
+        TreeMap<String, String> members = participants.get(group);
+        boolean othersWaiting = members != null && members.size() > 1;
+        if (maxLeadershipsPerNode <= 0 || leading.size() <= maxLeadershipsPerNode || !othersWaiting) {
+            return;
+        }
+        LeaderLatch latch = latches.get(group);
+        if (latch != null && leading.remove(group)) {
+            if (latches.remove(group, latch)) {
+                yields.incrementAndGet();
+                yielded.add(group);
+                try {
+                    latch.close();
+                } catch (Exception e) {
+                    System.out.println("Failed to yield election " + group + ": " + e.getMessage());
+                }
+                rejoinScheduler.schedule(() -> {
+                    try {
+                        if (yielded.remove(group)) {
+                            ensureJoined(group);
+                        }
+                    } catch (Exception e) {
+                        System.out.println("Failed to rejoin election " + group + ": " + e.getMessage());
+                    }
+                }, rejoinDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    public boolean isLeader(String group) {
+        return leading.contains(group);
+    }
+
+    /**
+     * Current leader id of every group with at least one participant, maintained locally.
+     */
+    public Map<String, String> getLeadersByGroup() {
+        return leadersByGroup;
+    }
+
+    public Map<String, Object> getGroupStatus(String group) {
+        Map<String, Object> invalid = validate(group);
+        if (invalid != null) {
+            return invalid;
+        }
+        Map<String, Object> status = new HashMap<>();
+        TreeMap<String, String> members = participants.get(group);
+        status.put("group", group);
+        status.put("leader", leadersByGroup.get(group));
+        status.put("participants", members != null ? members.size() : 0);
+        status.put("joined", latches.containsKey(group));
+        status.put("isLeader", leading.contains(group));
+        return status;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("nodeId", nodeId);
+        status.put("joinedGroups", latches.size());
+        status.put("leadingGroups", leading.size());
+        status.put("knownGroups", leadersByGroup.size());
+        status.put("maxLeadershipsPerNode", maxLeadershipsPerNode);
+        status.put("yields", yields.get());
+        return status;
+    }
+
+    private static Map<String, Object> validate(String group) {
+        return ZnodeNames.validate("group", group, RESERVED_GROUPS);
+    }
+
+    @PreDestroy
+    public void cleanup() throws Exception {
+        if (rejoinScheduler != null) {
+            rejoinScheduler.shutdownNow();
+        }
+        for (LeaderLatch latch : latches.values()) {
+            latch.close();
+        }
+        latches.clear();
+        if (cache != null) {
+            cache.close();
+        }
+        if (electionExecutor != null) {
+            electionExecutor.shutdownNow();
+        }
+    }
+}
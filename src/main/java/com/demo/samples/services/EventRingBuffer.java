@@ -0,0 +1,178 @@
+package com.demo.samples.services;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-capacity, preallocated ring buffer of structured events.
+ * <p>
+ * Appends are allocation-free and lock-free: a writer claims a sequence number with one atomic
+ * increment, claims the slot with a CAS and fills the slot's primitive columns. A writer never
+ * waits for another one. If the slot is still being filled by a writer from an earlier lap, the
+ * later writer leaves its sequence on the slot and returns; the earlier writer then marks that
+ * sequence as dropped instead of publishing. A writer that finds a later lap already in its slot
+ * drops its event too. Each slot carries the sequence it was last published with, so readers
+ * detect slots that were overwritten or dropped and count them as missed. Once full, the oldest
+ * events are overwritten.
+ */
+public class EventRingBuffer {
+
+    public enum EventType {
+        COUNT_CHANGED, CONNECTION_STATE
+    }
+
+    public record Event(long sequence, EventType type, long value, long version, long nanoTime) {
+    }
+
+    /**
+     * @param events     events in sequence order
+     * @param nextCursor cursor to pass to the next read
+     * @param missed     events that were overwritten before they could be read
+     */
+    public record Page(List<Event> events, long nextCursor, long missed) {
+    }
+
+    private static final EventType[] TYPES = EventType.values();
+    // Slot states besides a published sequence (which is at least -capacity): CLAIMED + s while
+    // the slot is being filled and s is the latest sequence waiting on it, DROPPED + s once s was
+    // given up. Sequences stay far below 2^62, so the three ranges do not overlap.
+    private static final long CLAIMED = Long.MIN_VALUE;
+    private static final long DROPPED = Long.MIN_VALUE / 2;
+
+    private final int capacity;
+    private final int mask;
+    private final byte[] types;
+    private final long[] values;
+    private final long[] versions;
+    private final long[] nanoTimes;
+    private final AtomicLongArray published;
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong floor = new AtomicLong();
+
+    public EventRingBuffer(int requestedCapacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.mask = capacity - 1;
+        this.types = new byte[capacity];
+        this.values = new long[capacity];
+        this.versions = new long[capacity];
+        this.nanoTimes = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            // As if published one lap before sequence 0, so the first lap claims like any other
+            published.set(i, i - capacity);
+        }
+    }
+
+    public void append(EventType type, long value, long version) {
+        long sequence = next.getAndIncrement();
+        int index = (int) (sequence & mask);
+        long claim = CLAIMED + sequence;
+        while (true) {
+            long slot = published.get(index);
+            if (sequenceOf(slot) >= sequence) {
+                // A later lap already has the slot; this event counts as overwritten
+                return;
+            }
+            if (published.compareAndSet(index, slot, claim)) {
+                if (isClaimed(slot)) {
+                    // Another writer is filling the slot; it will mark this sequence as dropped
+                    return;
+                }
+                break;
+            }
+        }
+        types[index] = (byte) type.ordinal();
+        values[index] = value;
+        versions[index] = version;
+        nanoTimes[index] = System.nanoTime();
+        if (!published.compareAndSet(index, claim, sequence)) {
+            // A later writer left its sequence while the columns were written; drop that one
+            long slot;
+            do {
+                slot = published.get(index);
+            } while (!published.compareAndSet(index, slot, DROPPED + sequenceOf(slot)));
+        }
+    }
+
+    private boolean isClaimed(long slot) {
+        return slot < DROPPED;
+    }
+
+    private boolean isPublished(long slot) {
+        return slot >= -capacity;
+    }
+
+    // The sequence a slot state refers to
+    private long sequenceOf(long slot) {
+        if (isClaimed(slot)) {
+            return slot - CLAIMED;
+        }
+        return isPublished(slot) ? slot : slot - DROPPED;
+    }
+
+    /**
+     * Reads up to {@code limit} events starting at {@code cursor}. A cursor older than the
+     * buffer's retention is moved forward to the oldest retained event.
+     */
+    public Page read(long cursor, int limit) {
+        long head = next.get();
+        long oldest = Math.max(floor.get(), head - capacity);
+        long start = Math.max(cursor, oldest);
+        long missed = Math.max(0, oldest - cursor);
+        long end = Math.min(head, start + limit);
+
+        List<Event> events = new ArrayList<>((int) Math.max(0, end - start));
+        long sequence = start;
+        for (; sequence < end; sequence++) {
+            int index = (int) (sequence & mask);
+            long slot = published.get(index);
+            long owner = sequenceOf(slot);
+            if (owner < sequence || (owner == sequence && isClaimed(slot))) {
+                // Not published yet; resume here next time
+                break;
+            }
+            if (slot != sequence) {
+                // Overwritten by a later lap, or dropped
+                missed++;
+                continue;
+            }
+            byte type = types[index];
+            long value = values[index];
+            long version = versions[index];
+            long nanoTime = nanoTimes[index];
+            VarHandle.acquireFence();
+            if (published.get(index) != sequence) {
+                missed++;
+                continue;
+            }
+            events.add(new Event(sequence, TYPES[type], value, version, nanoTime));
+        }
+        return new Page(events, sequence, missed);
+    }
+
+    /**
+     * Hides every event appended so far from subsequent reads.
+     */
+    public long clear() {
+        long head = next.get();
+        long cleared = head - Math.max(floor.get(), head - capacity);
+        floor.set(head);
+        return cleared;
+    }
+
+    public long size() {
+        long head = next.get();
+        return head - Math.max(floor.get(), head - capacity);
+    }
+
+    public long head() {
+        return next.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -1,45 +1,89 @@
 package com.demo.samples.services;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.leader.LeaderLatch;
+import org.apache.curator.framework.recipes.leader.LeaderLatchListener;
 import org.apache.curator.framework.recipes.leader.LeaderSelector;
 import org.apache.curator.framework.recipes.leader.LeaderSelectorListenerAdapter;
+import org.apache.curator.framework.recipes.cache.ChildData;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class LeaderElectionService {
 
+    private static final String LATCH_PATH = "/leader/latch";
+
     private final CuratorFramework client;
+    private final ExecutorService coordinationExecutor;
+    private final MeterRegistry meterRegistry;
+    private final StatePushService statePushService;
+    private final ZnodeCacheService znodeCache;
     private LeaderLatch leaderLatch;
     private LeaderSelector leaderSelector;
     private final AtomicInteger leaderCount = new AtomicInteger(0);
+    private volatile long latchLeaderSinceNanos;
 
-    public LeaderElectionService(CuratorFramework client) {
+    public LeaderElectionService(CuratorFramework client, ExecutorService coordinationExecutor, MeterRegistry meterRegistry,
+                                 StatePushService statePushService, ZnodeCacheService znodeCache) {
         this.client = client;
+        this.coordinationExecutor = coordinationExecutor;
+        this.meterRegistry = meterRegistry;
+        this.statePushService = statePushService;
+        this.znodeCache = znodeCache;
     }
 
     @PostConstruct
     public void init() throws Exception {
         // Initialize LeaderLatch
-        leaderLatch = new LeaderLatch(client, "/leader/latch", "instance-" + System.currentTimeMillis());
+        leaderLatch = new LeaderLatch(client, LATCH_PATH, "instance-" + System.currentTimeMillis());
+        leaderLatch.addListener(new LeaderLatchListener() {
+            @Override
+            public void isLeader() {
+                latchLeaderSinceNanos = System.nanoTime();
+                recordTransition("latch", "acquired");
+                publishLeadership("latch", true);
+            }
+
+            @Override
+            public void notLeader() {
+                recordTransition("latch", "lost");
+                recordTenure("latch", latchLeaderSinceNanos);
+                publishLeadership("latch", false);
+            }
+        }, coordinationExecutor);
         leaderLatch.start();
 
         // Initialize LeaderSelector
-        leaderSelector = new LeaderSelector(client, "/leader/selector", new LeaderSelectorListenerAdapter() {
+        leaderSelector = new LeaderSelector(client, "/leader/selector", coordinationExecutor, new LeaderSelectorListenerAdapter() {
             @Override
             public void takeLeadership(CuratorFramework client) throws Exception {
                 // This callback will be invoked when this instance becomes the leader
                 leaderCount.incrementAndGet();
+                recordTransition("selector", "acquired");
+                publishLeadership("selector", true);
+                long leaderSince = System.nanoTime();
                 System.out.println("I am the leader now via LeaderSelector!");
-                // Simulate some work as leader
-                Thread.sleep(5000);
+                try {
+                    // Simulate some work as leader
+                    Thread.sleep(5000);
+                } finally {
+                    recordTransition("selector", "lost");
+                    recordTenure("selector", leaderSince);
+                    publishLeadership("selector", false);
+                }
             }
         });
         leaderSelector.autoRequeue(); // Important: Requeue after leadership is lost
@@ -49,8 +93,17 @@ public class LeaderElectionService {
     public Map<String, Object> getLeaderLatchStatus() throws Exception {
         Map<String, Object> status = new HashMap<>();
         status.put("isLeader", leaderLatch.hasLeadership());
-        status.put("currentLeaderId", leaderLatch.getLeader().getId());
-        status.put("participants", leaderLatch.getParticipants().size());
+        // Participant nodes are read from the local cache instead of listing and reading them per request
+        List<String> participants = znodeCache.getChildren(LATCH_PATH, false);
+        String leaderId = null;
+        if (!participants.isEmpty()) {
+            // Latch nodes end in a sequence number; the lowest one holds leadership
+            participants.sort(Comparator.comparing(name -> name.substring(name.lastIndexOf('-') + 1)));
+            Optional<ChildData> leaderNode = znodeCache.getData(LATCH_PATH + "/" + participants.get(0), false);
+            leaderId = leaderNode.map(node -> new String(node.getData())).orElse(null);
+        }
+        status.put("currentLeaderId", leaderId);
+        status.put("participants", participants.size());
         return status;
     }
 
@@ -62,6 +115,23 @@ public class LeaderElectionService {
         return status;
     }
 
+    private void publishLeadership(String recipe, boolean hasLeadership) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("hasLeadership", hasLeadership);
+        statePushService.publish(StatePushService.LEADER, recipe, payload);
+    }
+
+    private void recordTransition(String recipe, String transition) {
+        meterRegistry.counter("zk.leader.transitions", "recipe", recipe, "transition", transition).increment();
+    }
+
+    private void recordTenure(String recipe, long leaderSinceNanos) {
+        Timer.builder("zk.leader.tenure")
+                .tag("recipe", recipe)
+                .register(meterRegistry)
+                .record(System.nanoTime() - leaderSinceNanos, TimeUnit.NANOSECONDS);
+    }
+
     public boolean waitForLeadership(long timeout, TimeUnit unit) throws InterruptedException {
         return leaderLatch.await(timeout, unit);
     }
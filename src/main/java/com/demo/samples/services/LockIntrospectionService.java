@@ -0,0 +1,318 @@
+package com.demo.samples.services;
+
+import com.demo.samples.config.CuratorClientPool;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Who holds and who waits on a lock, read from the lock's participant znodes.
+ * <p>
+ * The participant nodes are listed and then read in one multi, giving each one's session,
+ * data and creation time. Understands {@code InterProcessMutex} (sequential children),
+ * {@code InterProcessReadWriteLock} ({@code __READ__}/{@code __WRIT__} children) and
+ * {@code InterProcessSemaphoreV2}/{@code InterProcessSemaphoreMutex} ({@code leases} and
+ * {@code locks} children). For semaphores only the first {@code maxLeases} lease nodes by
+ * sequence are holders; the lease count is read from a {@code SharedCount} at the sibling
+ * {@code max-leases} node if there is one and is 1 otherwise, as for
+ * {@code InterProcessSemaphoreMutex}. A lease node that the session at the head of the
+ * {@code locks} queue created after its lock node is still being acquired, so it is a waiter.
+ * Results are cached per path for {@code lock.introspection.ttl-ms}
+ * and concurrent callers for the same path share one read. For registry mutexes the
+ * {@link CoalescingLock}'s local state (holder, local queue, handoffs) is added, since local
+ * waiters and handoffs leave no trace in ZooKeeper.
+ * <p>
+ * Hold and wait durations are based on the znodes' ctime, so they include any clock skew
+ * between this instance and the ensemble.
+ */
+@Service
+public class LockIntrospectionService {
+
+    private static final String GLOBAL_MUTEX_PATH = DistributedLockService.LOCK_PATH;
+    private static final String GLOBAL_RW_PATH = "/locks/read-write-lock";
+    private static final String READ_MARKER = "__READ__";
+    private static final String WRITE_MARKER = "__WRIT__";
+    // SemaphoreService keeps its lease count in a SharedCount next to the semaphore path
+    private static final String MAX_LEASES_NODE = "max-leases";
+    // Curator sequential node names end in a 10 digit sequence number
+    private static final int SEQUENCE_LENGTH = 10;
+
+    private final CuratorFramework client;
+    private final CuratorClientPool clientPool;
+    private final LockRegistry lockRegistry;
+    private final Map<String, CompletableFuture<CachedInspection>> cache = new ConcurrentHashMap<>();
+
+    @Value("${lock.introspection.ttl-ms:1000}")
+    private long ttlMs;
+
+    @Value("${lock.introspection.max-cached-paths:1000}")
+    private int maxCachedPaths;
+
+    public LockIntrospectionService(CuratorFramework client, CuratorClientPool clientPool, LockRegistry lockRegistry) {
+        this.client = client;
+        this.clientPool = clientPool;
+        this.lockRegistry = lockRegistry;
+    }
+
+    public Map<String, Object> inspect(String path) {
+        Map<String, Object> result = cachedRead(path);
+        CoalescingLock mutex = path.endsWith("/mutex")
+                ? lockRegistry.findMutex(ZKPaths.getPathAndNode(path).getPath())
+                : null;
+        if (mutex == null) {
+            return result;
+        }
+        // Local state is not in the znodes: the lock is not reentrant, and handoffs keep one lease node
+        Map<String, Object> local = new HashMap<>();
+        local.put("held", mutex.isHeld());
+        local.put("localQueueLength", mutex.getLocalQueueLength());
+        local.put("localHandoffs", mutex.getLocalHandoffs());
+        local.put("zkAcquires", mutex.getZkAcquires());
+        Map<String, Object> withLocal = new HashMap<>(result);
+        withLocal.put("local", local);
+        return withLocal;
+    }
+
+    /**
+     * The cached inspection of {@code path}, read again once older than the TTL. Concurrent
+     * callers for one path share a single read through its future; the ZooKeeper reads run
+     * outside any map operation, so callers for other paths never wait on them.
+     */
+    private Map<String, Object> cachedRead(String path) {
+        while (true) {
+            long now = System.currentTimeMillis();
+            CompletableFuture<CachedInspection> current = cache.get(path);
+            if (current != null && !isExpired(current, now)) {
+                return join(path, current);
+            }
+            if (current == null && cache.size() >= maxCachedPaths) {
+                cache.values().removeIf(future -> isExpired(future, now));
+            }
+            CompletableFuture<CachedInspection> fresh = new CompletableFuture<>();
+            boolean ours = current == null
+                    ? cache.putIfAbsent(path, fresh) == null
+                    : cache.replace(path, current, fresh);
+            if (!ours) {
+                // Another caller started a read first; use that one
+                continue;
+            }
+            try {
+                fresh.complete(new CachedInspection(read(path), System.currentTimeMillis() + ttlMs));
+            } catch (Exception e) {
+                cache.remove(path, fresh);
+                fresh.completeExceptionally(e);
+            }
+            return join(path, fresh);
+        }
+    }
+
+    // A read still in flight is never expired, so callers arriving meanwhile wait for it
+    private static boolean isExpired(CompletableFuture<CachedInspection> future, long now) {
+        return future.isDone() && (future.isCompletedExceptionally() || future.join().expiresAt <= now);
+    }
+
+    private static Map<String, Object> join(String path, CompletableFuture<CachedInspection> future) {
+        try {
+            return future.join().result;
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Lock inspection failed for " + path, e.getCause());
+        }
+    }
+
+    /**
+     * Inspects the global locks and every lock the registry currently has open, most
+     * contended first.
+     */
+    public List<Map<String, Object>> inspectHot(int limit) {
+        List<String> paths = new ArrayList<>(List.of(GLOBAL_MUTEX_PATH, GLOBAL_RW_PATH));
+        for (String entryPath : lockRegistry.getActivePaths()) {
+            paths.add(entryPath + "/mutex");
+            paths.add(entryPath + "/rw");
+        }
+        List<Map<String, Object>> summaries = new ArrayList<>();
+        for (String path : paths) {
+            Map<String, Object> inspection = new HashMap<>(inspect(path));
+            inspection.remove("nodes");
+            summaries.add(inspection);
+        }
+        summaries.sort(Comparator.comparingInt((Map<String, Object> summary) -> (Integer) summary.get("waiters")).reversed());
+        return summaries.subList(0, Math.min(limit, summaries.size()));
+    }
+
+    private Map<String, Object> read(String path) throws Exception {
+        CuratorFramework lockClient = clientFor(path);
+        List<String> children = children(lockClient, path);
+
+        // Semaphore: lease nodes are the holders up to the lease count, nodes in the internal
+        // "locks" queue are waiting
+        List<String> holderPaths = new ArrayList<>();
+        List<String> queuePaths = new ArrayList<>();
+        String kind;
+        if (children.contains("leases") || children.contains("locks")) {
+            kind = "semaphore";
+            for (String lease : sortedBySequence(children(lockClient, path + "/leases"))) {
+                holderPaths.add(path + "/leases/" + lease);
+            }
+            for (String lock : sortedBySequence(children(lockClient, path + "/locks"))) {
+                queuePaths.add(path + "/locks/" + lock);
+            }
+        } else {
+            kind = children.stream().anyMatch(name -> name.contains(READ_MARKER) || name.contains(WRITE_MARKER))
+                    ? "read-write" : "mutex";
+            for (String child : sortedBySequence(children)) {
+                queuePaths.add(path + "/" + child);
+            }
+        }
+
+        List<String> allPaths = new ArrayList<>(holderPaths);
+        allPaths.addAll(queuePaths);
+        if ("semaphore".equals(kind)) {
+            allPaths.add(ZKPaths.makePath(ZKPaths.getPathAndNode(path).getPath(), MAX_LEASES_NODE));
+        }
+        List<MultiRead.NodeData> nodes = new ArrayList<>(MultiRead.getData(lockClient, allPaths));
+
+        int maxLeases = 0;
+        Set<String> semaphoreHolders = new HashSet<>();
+        Set<String> merged = new HashSet<>();
+        if ("semaphore".equals(kind)) {
+            MultiRead.NodeData count = nodes.remove(nodes.size() - 1);
+            maxLeases = count.exists() && count.data() != null && count.data().length == Integer.BYTES
+                    ? ByteBuffer.wrap(count.data()).getInt() : 1;
+            List<MultiRead.NodeData> leases = nodes.subList(0, holderPaths.size());
+            MultiRead.NodeData head = nodes.subList(holderPaths.size(), nodes.size()).stream()
+                    .filter(MultiRead.NodeData::exists).findFirst().orElse(null);
+            // The head of the queue creates its lease node while holding its lock node and
+            // waits there until the lease count allows it
+            MultiRead.NodeData pending = null;
+            for (MultiRead.NodeData lease : leases) {
+                if (head != null && lease.exists() && lease.stat().getEphemeralOwner() == head.stat().getEphemeralOwner()
+                        && lease.stat().getCzxid() > head.stat().getCzxid()) {
+                    pending = lease;
+                }
+            }
+            for (MultiRead.NodeData lease : leases) {
+                if (lease.exists() && lease != pending && semaphoreHolders.size() < maxLeases) {
+                    semaphoreHolders.add(lease.path());
+                }
+            }
+            if (pending != null) {
+                // Reported once, as its lease node
+                merged.add(head.path());
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        long sessionId = lockClient.getZookeeperClient().getZooKeeper().getSessionId();
+        List<Map<String, Object>> described = new ArrayList<>();
+        Map<String, Integer> holdCountsBySession = new HashMap<>();
+        int holders = 0;
+        int waiters = 0;
+        int readers = 0;
+        int writers = 0;
+        long oldestWaitMs = 0;
+        boolean writerAhead = false;
+        for (int i = 0; i < nodes.size(); i++) {
+            MultiRead.NodeData node = nodes.get(i);
+            if (!node.exists() || merged.contains(node.path())) {
+                // Released between listing and reading, or reported as its lease node
+                continue;
+            }
+            String name = ZKPaths.getNodeFromPath(node.path());
+            String mode = name.contains(READ_MARKER) ? "read" : name.contains(WRITE_MARKER) ? "write" : "exclusive";
+            boolean holding;
+            if ("semaphore".equals(kind)) {
+                holding = semaphoreHolders.contains(node.path());
+            } else if ("read-write".equals(kind)) {
+                // Readers ahead of the first writer hold the lock; a writer holds it only when first
+                holding = "read".equals(mode) ? !writerAhead : holders == 0 && waiters == 0;
+                writerAhead |= "write".equals(mode);
+            } else {
+                holding = holders == 0 && waiters == 0;
+            }
+            readers += "read".equals(mode) ? 1 : 0;
+            writers += "write".equals(mode) ? 1 : 0;
+
+            long ageMs = Math.max(0, now - node.stat().getCtime());
+            String owner = Long.toHexString(node.stat().getEphemeralOwner());
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("node", name);
+            entry.put("mode", mode);
+            entry.put("sessionId", owner);
+            entry.put("thisSession", node.stat().getEphemeralOwner() == sessionId);
+            entry.put("data", node.data() != null ? new String(node.data()) : null);
+            if (holding) {
+                entry.put("role", "holder");
+                entry.put("heldMs", ageMs);
+                holdCountsBySession.merge(owner, 1, Integer::sum);
+                holders++;
+            } else {
+                entry.put("role", "waiter");
+                entry.put("queuePosition", waiters);
+                entry.put("waitingMs", ageMs);
+                oldestWaitMs = Math.max(oldestWaitMs, ageMs);
+                waiters++;
+            }
+            described.add(entry);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("path", path);
+        result.put("kind", kind);
+        result.put("holders", holders);
+        result.put("waiters", waiters);
+        result.put("oldestWaitMs", oldestWaitMs);
+        // Several per session for semaphore leases or readers; reentrant and handed-off acquires
+        // are local and keep a single node (see "local" for registry mutexes)
+        result.put("holdCountsBySession", holdCountsBySession);
+        if ("read-write".equals(kind)) {
+            result.put("readers", readers);
+            result.put("writers", writers);
+        }
+        if ("semaphore".equals(kind)) {
+            result.put("maxLeases", maxLeases);
+        }
+        result.put("nodes", described);
+        result.put("timestamp", now);
+        return result;
+    }
+
+    // Registry locks live on the pooled session their entry path is pinned to
+    private CuratorFramework clientFor(String path) {
+        if (path.startsWith(LockRegistry.BASE_PATH + "/") && (path.endsWith("/mutex") || path.endsWith("/rw"))) {
+            return clientPool.clientFor(ZKPaths.getPathAndNode(path).getPath());
+        }
+        return client;
+    }
+
+    private static List<String> sortedBySequence(List<String> names) {
+        List<String> sorted = new ArrayList<>(names);
+        sorted.sort(Comparator.comparing(name -> name.length() >= SEQUENCE_LENGTH
+                ? name.substring(name.length() - SEQUENCE_LENGTH) : name));
+        return sorted;
+    }
+
+    private static List<String> children(CuratorFramework client, String path) throws Exception {
+        try {
+            return client.getChildren().forPath(path);
+        } catch (KeeperException.NoNodeException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    private record CachedInspection(Map<String, Object> result, long expiresAt) {
+    }
+}
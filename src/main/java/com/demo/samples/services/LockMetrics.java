@@ -0,0 +1,52 @@
+package com.demo.samples.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wait time, hold time and acquire timeouts for one named lock.
+ */
+class LockMetrics {
+
+    private final Timer acquiredWait;
+    private final Timer timedOutWait;
+    private final Timer hold;
+    private final Counter timeouts;
+
+    LockMetrics(MeterRegistry registry, String lock) {
+        this.acquiredWait = Timer.builder("zk.lock.wait")
+                .tag("lock", lock)
+                .tag("outcome", "acquired")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.timedOutWait = Timer.builder("zk.lock.wait")
+                .tag("lock", lock)
+                .tag("outcome", "timeout")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.hold = Timer.builder("zk.lock.hold")
+                .tag("lock", lock)
+                .publishPercentileHistogram()
+                .register(registry);
+        this.timeouts = Counter.builder("zk.lock.acquire.timeouts")
+                .tag("lock", lock)
+                .register(registry);
+    }
+
+    void recordAcquire(long waitStartNanos, boolean acquired) {
+        long waited = System.nanoTime() - waitStartNanos;
+        if (acquired) {
+            acquiredWait.record(waited, TimeUnit.NANOSECONDS);
+        } else {
+            timedOutWait.record(waited, TimeUnit.NANOSECONDS);
+            timeouts.increment();
+        }
+    }
+
+    void recordHold(long acquiredNanos) {
+        hold.record(System.nanoTime() - acquiredNanos, TimeUnit.NANOSECONDS);
+    }
+}
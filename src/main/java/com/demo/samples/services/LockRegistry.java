@@ -0,0 +1,207 @@
+package com.demo.samples.services;
+
+import com.demo.samples.config.CuratorClientPool;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-resource distributed locks, created on demand and evicted when idle.
+ * <p>
+ * Resources are hashed onto {@code lock.registry.stripes} lock paths under
+ * {@code /locks/resources}, so unrelated resources usually lock independently.
+ * Setting the stripe count to 0 gives every resource its own lock path. Lock paths are
+ * spread over the {@link CuratorClientPool} sessions.
+ */
+@Service
+public class LockRegistry {
+
+    static final String BASE_PATH = "/locks/resources";
+
+    private final CuratorClientPool clientPool;
+    private final Map<String, LockEntry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private ScheduledExecutorService evictor;
+
+    @Value("${lock.registry.stripes:64}")
+    private int stripes;
+
+    @Value("${lock.registry.idle-ttl-ms:60000}")
+    private long idleTtlMs;
+
+    @Value("${lock.registry.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${lock.max-local-handoffs:16}")
+    private int maxLocalHandoffs;
+
+    public LockRegistry(CuratorClientPool clientPool) {
+        this.clientPool = clientPool;
+    }
+
+    @PostConstruct
+    public void init() {
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lock-registry-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTtlMs / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the lock entry for {@code resource} and pins it against eviction.
+     * Every checkout must be paired with {@link #checkin(LockEntry)}.
+     */
+    public LockEntry checkout(String resource) {
+        String path = pathFor(resource);
+        return entries.compute(path, (key, entry) -> {
+            if (entry == null) {
+                entry = new LockEntry(clientPool.clientFor(key), key, maxLocalHandoffs);
+                created.incrementAndGet();
+            }
+            entry.users.incrementAndGet();
+            entry.lastUsed = System.currentTimeMillis();
+            return entry;
+        });
+    }
+
+    public void checkin(LockEntry entry) {
+        entry.lastUsed = System.currentTimeMillis();
+        entry.users.decrementAndGet();
+    }
+
+    public String pathFor(String resource) {
+        if (resource == null || resource.isEmpty()) {
+            throw new IllegalArgumentException("Invalid resource name: " + resource);
+        }
+        if (stripes > 0) {
+            return BASE_PATH + "/stripe-" + Math.floorMod(resource.hashCode(), stripes);
+        }
+        String name = resource.replace('/', '_');
+        if (name.equals(".") || name.equals("..")) {
+            throw new IllegalArgumentException("Invalid resource name: " + resource);
+        }
+        return BASE_PATH + "/" + name;
+    }
+
+    /**
+     * The mutex of the entry at {@code path} if it is currently open, without pinning it.
+     */
+    public CoalescingLock findMutex(String path) {
+        LockEntry entry = entries.get(path);
+        return entry != null ? entry.mutex : null;
+    }
+
+    public List<String> getActivePaths() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("stripes", stripes);
+        status.put("clients", clientPool.size());
+        status.put("activeEntries", entries.size());
+        status.put("created", created.get());
+        status.put("evicted", evicted.get());
+        status.put("idleTtlMs", idleTtlMs);
+        status.put("maxEntries", maxEntries);
+        return status;
+    }
+
+    void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTtlMs;
+        for (String path : entries.keySet()) {
+            entries.computeIfPresent(path, (key, entry) -> {
+                if (entry.isIdle() && entry.lastUsed < cutoff) {
+                    evicted.incrementAndGet();
+                    return null;
+                }
+                return entry;
+            });
+        }
+
+        // Over capacity: drop least recently used idle entries
+        int excess = entries.size() - maxEntries;
+        if (excess > 0) {
+            List<LockEntry> candidates = new ArrayList<>(entries.values());
+            candidates.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+            for (LockEntry candidate : candidates) {
+                if (excess <= 0) {
+                    break;
+                }
+                boolean[] removed = new boolean[1];
+                entries.computeIfPresent(candidate.path, (key, entry) -> {
+                    if (entry.isIdle()) {
+                        removed[0] = true;
+                        return null;
+                    }
+                    return entry;
+                });
+                if (removed[0]) {
+                    evicted.incrementAndGet();
+                    excess--;
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+    }
+
+    public static class LockEntry {
+
+        private final String path;
+        private final CoalescingLock mutex;
+        private final InterProcessReadWriteLock readWriteLock;
+        private final AtomicInteger users = new AtomicInteger();
+        private volatile long lastUsed;
+
+        LockEntry(CuratorFramework client, String path, int maxLocalHandoffs) {
+            this.path = path;
+            this.mutex = new CoalescingLock(client, path + "/mutex", maxLocalHandoffs);
+            this.readWriteLock = new InterProcessReadWriteLock(client, path + "/rw");
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public CoalescingLock getMutex() {
+            return mutex;
+        }
+
+        public InterProcessReadWriteLock getReadWriteLock() {
+            return readWriteLock;
+        }
+
+        // Unpinned and holding no ZooKeeper lock, e.g. a mutex lease kept for a local handoff
+        private boolean isIdle() {
+            return users.get() == 0
+                    && !mutex.isAcquiredInThisProcess()
+                    && !readWriteLock.readLock().isAcquiredInThisProcess()
+                    && !readWriteLock.writeLock().isAcquiredInThisProcess();
+        }
+    }
+}
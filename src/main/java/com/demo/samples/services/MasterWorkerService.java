@@ -1,42 +1,212 @@
 package com.demo.samples.services;
 
+import com.demo.samples.config.ZookeeperProperties;
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.imps.GzipCompressionProvider;
 import org.apache.curator.framework.recipes.leader.LeaderSelector;
 import org.apache.curator.framework.recipes.leader.LeaderSelectorListenerAdapter;
 import org.apache.curator.x.discovery.ServiceInstance;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.server.context.WebServerInitializedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Master/worker job engine.
+ * <p>
+ * Jobs are submitted as sequential znodes under {@code /jobs/queue}. The instance holding
+ * {@code /leader/job-manager} moves them to {@code /jobs/assign/<workerId>} for the live
+ * {@code order-service} instances, keeping each worker below {@code jobs.max-in-flight-per-worker}.
+ * Every instance is also a worker: it claims its assigned tasks in batches by creating
+ * ephemeral {@code /jobs/owners/<task>} nodes and runs them on a bounded pool.
+ * <p>
+ * When a worker's session ends, its registration and owner nodes disappear together, and
+ * the leader moves its unowned assignments back to the queue.
+ * <p>
+ * A failed task's attempts are counted in the version of its assignment node. The worker keeps
+ * its claim for an exponential backoff before the task can be claimed again, and after
+ * {@code jobs.max-attempts} failures moves it to {@code /jobs/failed}.
+ * <p>
+ * Each leadership grant bumps the version of {@code /leader/job-manager-epoch}; that version
+ * is the leader's fencing token and every leader write is a transaction that checks it, so a
+ * paused former leader cannot write once a new one has taken over. With
+ * {@code jobs.failover.enabled}, the leader also heartbeats {@code /leader/job-manager-heartbeat}
+ * and followers delete the leader's lock node after {@code jobs.failover.missed-heartbeats}
+ * missed beats instead of waiting for its session to expire.
+ */
 @Service
 public class MasterWorkerService {
+
+    private static final String LEADER_PATH = "/leader/job-manager";
+    private static final String EPOCH_PATH = "/leader/job-manager-epoch";
+    private static final String HEARTBEAT_PATH = "/leader/job-manager-heartbeat";
+    private static final String QUEUE_PATH = "/jobs/queue";
+    private static final String ASSIGN_PATH = "/jobs/assign";
+    private static final String OWNERS_PATH = "/jobs/owners";
+    private static final String FAILED_PATH = "/jobs/failed";
+    private static final int MAX_OPS_PER_TRANSACTION = 500;
+    // Same provider ZookeeperConfig installs when zookeeper.compression is on
+    private static final GzipCompressionProvider GZIP = new GzipCompressionProvider();
+
     private CuratorFramework client;
+    private final ExecutorService coordinationExecutor;
+    private final RegistrationService registrationService;
+    private final CachedServiceDiscovery cachedServiceDiscovery;
+    private final boolean compressPayloads;
+    private final CountDownLatch shutdown = new CountDownLatch(1);
+    private LeaderSelector selector;
+
+    private final Semaphore leaderWake = new Semaphore(0);
+    private final Semaphore workerWake = new Semaphore(0);
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // Claimed tasks not yet finished; released by the worker thread once a task is done
+    private Semaphore workerSlots;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong requeued = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicInteger assignedByThisLeader = new AtomicInteger();
+    private volatile boolean leader;
+    private volatile int fencingToken = -1;
+    private volatile boolean fenced;
+    private final AtomicLong takeovers = new AtomicLong();
+    private ScheduledExecutorService failoverScheduler;
+    private int lastHeartbeatVersion = -1;
+    private long lastHeartbeatChangeNanos;
+    private volatile String workerId;
+    private ThreadPoolExecutor workerPool;
+    private ScheduledExecutorService retryScheduler;
+
+    @Value("${jobs.batch-size:10}")
+    private int batchSize;
+
+    @Value("${jobs.prefetch:20}")
+    private int prefetch;
+
+    @Value("${jobs.max-in-flight-per-worker:50}")
+    private int maxInFlightPerWorker;
+
+    @Value("${jobs.worker-threads:4}")
+    private int workerThreads;
+
+    @Value("${jobs.poll-interval-ms:1000}")
+    private long pollIntervalMs;
 
-    public MasterWorkerService(CuratorFramework client) {
+    @Value("${jobs.task-work-ms:100}")
+    private long taskWorkMs;
+
+    @Value("${jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${jobs.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${jobs.retry-backoff-max-ms:30000}")
+    private long retryBackoffMaxMs;
+
+    @Value("${jobs.failover.enabled:false}")
+    private boolean failoverEnabled;
+
+    @Value("${jobs.failover.heartbeat-ms:1000}")
+    private long heartbeatMs;
+
+    @Value("${jobs.failover.missed-heartbeats:3}")
+    private int missedHeartbeats;
+
+    public MasterWorkerService(CuratorFramework client, ExecutorService coordinationExecutor,
+                               RegistrationService registrationService, CachedServiceDiscovery cachedServiceDiscovery,
+                               ZookeeperProperties zookeeperProperties) {
         this.client = client;
+        this.coordinationExecutor = coordinationExecutor;
+        this.registrationService = registrationService;
+        this.cachedServiceDiscovery = cachedServiceDiscovery;
+        this.compressPayloads = zookeeperProperties.isCompression();
     }
 
+    // Runs after RegistrationService has registered this instance
     @EventListener
     public void onApplicationEvent(WebServerInitializedEvent event) throws Exception {
         int actualPort = event.getWebServer().getPort();
         System.out.println("master worker service");
 
-        LeaderSelector selector = new LeaderSelector(client, "/leader/job-manager",
+        for (String path : List.of(QUEUE_PATH, ASSIGN_PATH, OWNERS_PATH, FAILED_PATH)) {
+            try {
+                client.create().creatingParentsIfNeeded().forPath(path);
+            } catch (KeeperException.NodeExistsException ignored) {
+                // Created by another instance
+            }
+        }
+        startWorker();
+        cachedServiceDiscovery.addListener(leaderWake::release);
+
+        failoverScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "job-manager-failover");
+            t.setDaemon(true);
+            return t;
+        });
+        if (failoverEnabled) {
+            failoverScheduler.scheduleWithFixedDelay(this::checkLeaderHeartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        }
+
+        selector = new LeaderSelector(client, LEADER_PATH, coordinationExecutor,
                 new LeaderSelectorListenerAdapter() {
                     @Override
                     public void takeLeadership(CuratorFramework client) throws Exception {
                         String leaderInfo = "Leader is: Instance-on-Port-" + actualPort;
 
+                        // New fencing token; writes of any earlier leader now fail their epoch check
+                        fencingToken = bumpEpoch(leaderInfo.getBytes());
+                        fenced = false;
+
                         //  Write this instance's info into the ZNode
-                        client.setData().forPath("/leader/job-manager", leaderInfo.getBytes());
+                        fencedTransaction(List.of(client.transactionOp().setData().forPath(LEADER_PATH, leaderInfo.getBytes())));
 
-                        System.out.println("I'm the leader" + leaderInfo);
+                        System.out.println("I'm the leader" + leaderInfo + " (fencing token " + fencingToken + ")");
 
+                        leader = true;
+                        ScheduledFuture<?> heartbeat = failoverEnabled ? startHeartbeat() : null;
                         try {
-                            // Keep the leader alive
-                            Thread.sleep(Long.MAX_VALUE);
+                            // Assign until shutdown or fenced; leadership is lost by throwing out of here
+                            while (shutdown.getCount() > 0 && !fenced) {
+                                assignRound();
+                                leaderWake.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                                leaderWake.drainPermits();
+                            }
                         } catch (InterruptedException e) {
                             System.out.println("Leadership interrupted.");
+                        } finally {
+                            leader = false;
+                            if (heartbeat != null) {
+                                heartbeat.cancel(false);
+                            }
                         }
                     }
                 });
@@ -44,4 +214,520 @@ public class MasterWorkerService {
         selector.autoRequeue(); // If we lose leadership, try to get it back later
         selector.start();
     }
-}
\ No newline at end of file
+
+    public Map<String, Object> submit(int count, String payload) throws Exception {
+        Map<String, Object> result = new HashMap<>();
+        List<CuratorOp> ops = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // Compressed payloads are copied as-is on assignment and decompressed by the worker
+            ops.add(compressPayloads
+                    ? client.transactionOp().create().compressed().withMode(CreateMode.PERSISTENT_SEQUENTIAL)
+                            .forPath(QUEUE_PATH + "/task-", payload.getBytes())
+                    : client.transactionOp().create().withMode(CreateMode.PERSISTENT_SEQUENTIAL)
+                            .forPath(QUEUE_PATH + "/task-", payload.getBytes()));
+            if (ops.size() == MAX_OPS_PER_TRANSACTION) {
+                client.transaction().forOperations(ops);
+                ops.clear();
+            }
+        }
+        if (!ops.isEmpty()) {
+            client.transaction().forOperations(ops);
+        }
+        result.put("status", "success");
+        result.put("submitted", count);
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    // ========== Leader ==========
+
+    private int bumpEpoch(byte[] leaderInfo) throws Exception {
+        try {
+            return client.setData().forPath(EPOCH_PATH, leaderInfo).getVersion();
+        } catch (KeeperException.NoNodeException e) {
+            try {
+                client.create().creatingParentsIfNeeded().forPath(EPOCH_PATH, leaderInfo);
+            } catch (KeeperException.NodeExistsException ignored) {
+                // Created concurrently
+            }
+            return client.setData().forPath(EPOCH_PATH, leaderInfo).getVersion();
+        }
+    }
+
+    /**
+     * Runs {@code ops} in one transaction that first checks the epoch is still at this
+     * leader's fencing token. Throws {@link IllegalStateException} once fenced, which ends
+     * the leadership.
+     */
+    private void fencedTransaction(List<CuratorOp> ops) throws Exception {
+        List<CuratorOp> fencedOps = new ArrayList<>(ops.size() + 1);
+        fencedOps.add(client.transactionOp().check().withVersion(fencingToken).forPath(EPOCH_PATH));
+        fencedOps.addAll(ops);
+        try {
+            client.transaction().forOperations(fencedOps);
+        } catch (KeeperException e) {
+            List<OpResult> results = e.getResults();
+            if (results != null && !results.isEmpty() && results.get(0) instanceof OpResult.ErrorResult error
+                    && error.getErr() == KeeperException.Code.BADVERSION.intValue()) {
+                fenced = true;
+                leaderWake.release();
+                throw new IllegalStateException("Fenced: a newer leader holds the job-manager epoch");
+            }
+            throw e;
+        }
+    }
+
+    private ScheduledFuture<?> startHeartbeat() throws Exception {
+        // The holder's lock node is the lowest sequence child of the leader path
+        List<String> lockNodes = sortedLockNodes();
+        byte[] holder = lockNodes.isEmpty() ? new byte[0] : lockNodes.get(0).getBytes();
+        try {
+            client.create().forPath(HEARTBEAT_PATH, holder);
+        } catch (KeeperException.NodeExistsException ignored) {
+            // Left by a previous leader
+        }
+        return failoverScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                fencedTransaction(List.of(client.transactionOp().setData().forPath(HEARTBEAT_PATH, holder)));
+            } catch (Exception e) {
+                System.out.println("Leader heartbeat failed: " + e.getMessage());
+            }
+        }, 0, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Follower side of fast failover: if the heartbeat version has not moved for
+     * {@code missedHeartbeats} intervals (measured on the local clock), delete the lock node
+     * of the holder named in the heartbeat so the next participant takes over.
+     */
+    private void checkLeaderHeartbeat() {
+        if (leader) {
+            lastHeartbeatVersion = -1;
+            return;
+        }
+        try {
+            Stat stat = client.checkExists().forPath(HEARTBEAT_PATH);
+            long now = System.nanoTime();
+            if (stat == null || stat.getVersion() != lastHeartbeatVersion) {
+                lastHeartbeatVersion = stat != null ? stat.getVersion() : -1;
+                lastHeartbeatChangeNanos = now;
+                return;
+            }
+            if (now - lastHeartbeatChangeNanos < TimeUnit.MILLISECONDS.toNanos(heartbeatMs * missedHeartbeats)) {
+                return;
+            }
+            String holder = new String(client.getData().forPath(HEARTBEAT_PATH));
+            List<String> lockNodes = sortedLockNodes();
+            // Only remove the node the silent leader heartbeated for, never a newer holder
+            if (!lockNodes.isEmpty() && lockNodes.get(0).equals(holder)) {
+                try {
+                    client.delete().forPath(LEADER_PATH + "/" + holder);
+                    takeovers.incrementAndGet();
+                    System.out.println("Job manager leader missed " + missedHeartbeats + " heartbeats, removed " + holder);
+                } catch (KeeperException.NoNodeException ignored) {
+                    // Another follower got there first
+                }
+            }
+            lastHeartbeatChangeNanos = now;
+        } catch (Exception e) {
+            System.out.println("Leader heartbeat check failed: " + e.getMessage());
+        }
+    }
+
+    private List<String> sortedLockNodes() throws Exception {
+        List<String> lockNodes = children(LEADER_PATH);
+        lockNodes.sort((a, b) -> a.substring(a.lastIndexOf('-') + 1).compareTo(b.substring(b.lastIndexOf('-') + 1)));
+        return lockNodes;
+    }
+
+    private void assignRound() throws Exception {
+        Set<String> live = new HashSet<>();
+        for (ServiceInstance<Void> instance : cachedServiceDiscovery.getInstances()) {
+            live.add(instance.getId());
+        }
+
+        Map<String, Integer> load = new HashMap<>();
+        for (String worker : children(ASSIGN_PATH)) {
+            List<String> tasks = children(ASSIGN_PATH + "/" + worker);
+            if (live.contains(worker)) {
+                load.put(worker, tasks.size());
+            } else {
+                requeueOrphans(worker, tasks);
+            }
+        }
+        for (String worker : live) {
+            load.putIfAbsent(worker, 0);
+        }
+
+        // Re-armed every round so new submissions wake the leader
+        List<String> queued = client.getChildren()
+                .usingWatcher((Watcher) event -> leaderWake.release())
+                .forPath(QUEUE_PATH);
+        if (queued.isEmpty() || load.isEmpty()) {
+            return;
+        }
+        Collections.sort(queued);
+
+        // Fill the least loaded workers first, each up to its in-flight limit
+        List<String> workers = new ArrayList<>(load.keySet());
+        workers.sort((a, b) -> Integer.compare(load.get(a), load.get(b)));
+        int next = 0;
+        for (String worker : workers) {
+            int capacity = Math.min(maxInFlightPerWorker - load.get(worker), queued.size() - next);
+            if (capacity <= 0) {
+                continue;
+            }
+            assign(worker, queued.subList(next, next + capacity));
+            next += capacity;
+        }
+    }
+
+    private void assign(String worker, List<String> tasks) throws Exception {
+        List<String> queuePaths = new ArrayList<>(tasks.size());
+        for (String task : tasks) {
+            queuePaths.add(QUEUE_PATH + "/" + task);
+        }
+        List<CuratorOp> ops = new ArrayList<>();
+        for (MultiRead.NodeData node : MultiRead.getData(client, queuePaths)) {
+            if (!node.exists()) {
+                continue;
+            }
+            String task = node.path().substring(QUEUE_PATH.length() + 1);
+            ops.add(client.transactionOp().create().forPath(ASSIGN_PATH + "/" + worker + "/" + task, node.data()));
+            ops.add(client.transactionOp().delete().withVersion(node.stat().getVersion()).forPath(node.path()));
+        }
+        if (ops.isEmpty()) {
+            return;
+        }
+        try {
+            client.create().creatingParentsIfNeeded().forPath(ASSIGN_PATH + "/" + worker);
+        } catch (KeeperException.NodeExistsException ignored) {
+            // Worker already has an assignment node
+        }
+        try {
+            fencedTransaction(ops);
+            assignedByThisLeader.addAndGet(ops.size() / 2);
+        } catch (KeeperException e) {
+            // A requeue or a submission raced us; the next round sees the new state
+            System.out.println("Job assignment to " + worker + " failed: " + e.getMessage());
+        }
+    }
+
+    private void requeueOrphans(String worker, List<String> tasks) throws Exception {
+        List<String> paths = new ArrayList<>(tasks.size() * 2);
+        for (String task : tasks) {
+            paths.add(ASSIGN_PATH + "/" + worker + "/" + task);
+            paths.add(OWNERS_PATH + "/" + task);
+        }
+        List<MultiRead.NodeData> nodes = MultiRead.getData(client, paths);
+        List<CuratorOp> ops = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i += 2) {
+            MultiRead.NodeData assignment = nodes.get(i);
+            MultiRead.NodeData owner = nodes.get(i + 1);
+            // An owner node means the worker's session has not expired yet
+            if (!assignment.exists() || owner.exists()) {
+                continue;
+            }
+            String task = assignment.path().substring(assignment.path().lastIndexOf('/') + 1);
+            ops.add(client.transactionOp().create().forPath(QUEUE_PATH + "/" + task, assignment.data()));
+            ops.add(client.transactionOp().delete().withVersion(assignment.stat().getVersion()).forPath(assignment.path()));
+        }
+        if (!ops.isEmpty()) {
+            try {
+                fencedTransaction(ops);
+                requeued.addAndGet(ops.size() / 2);
+                System.out.println("Requeued " + ops.size() / 2 + " tasks of dead worker " + worker);
+            } catch (KeeperException e) {
+                System.out.println("Requeue of " + worker + " failed: " + e.getMessage());
+            }
+        } else if (tasks.isEmpty()) {
+            try {
+                client.delete().forPath(ASSIGN_PATH + "/" + worker);
+            } catch (KeeperException.NoNodeException | KeeperException.NotEmptyException ignored) {
+                // Already removed, or assigned to again
+            }
+        }
+    }
+
+    // ========== Worker ==========
+
+    private void startWorker() throws Exception {
+        workerId = registrationService.getInstance().getId();
+        try {
+            client.create().creatingParentsIfNeeded().forPath(ASSIGN_PATH + "/" + workerId);
+        } catch (KeeperException.NodeExistsException ignored) {
+            // Leader assigned to us first
+        }
+        // Bounded by workerSlots: at most workerThreads + prefetch tasks are handed to the pool, and the
+        // queue can hold all of them, so execute() never rejects while a finished task's thread is
+        // still on its way back to the pool
+        int slots = workerThreads + Math.max(1, prefetch);
+        workerSlots = new Semaphore(slots);
+        workerPool = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(slots), r -> {
+            Thread t = new Thread(r, "job-worker-" + workerId);
+            t.setDaemon(true);
+            return t;
+        });
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "job-retry-" + workerId);
+            t.setDaemon(true);
+            return t;
+        });
+        coordinationExecutor.execute(() -> {
+            while (shutdown.getCount() > 0) {
+                try {
+                    claimRound();
+                    workerWake.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    workerWake.drainPermits();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    System.out.println("Job worker round failed: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void claimRound() throws Exception {
+        String assignPath = ASSIGN_PATH + "/" + workerId;
+        List<String> assigned;
+        try {
+            assigned = client.getChildren()
+                    .usingWatcher((Watcher) event -> workerWake.release())
+                    .forPath(assignPath);
+        } catch (KeeperException.NoNodeException e) {
+            // Removed by a leader that had not yet seen this instance register; recreate and
+            // set the watch next round
+            try {
+                client.create().creatingParentsIfNeeded().forPath(assignPath);
+            } catch (KeeperException.NodeExistsException ignored) {
+                // Leader assigned to us in the meantime
+            }
+            return;
+        }
+        Collections.sort(assigned);
+
+        while (true) {
+            int room = Math.min(workerSlots.availablePermits(), batchSize);
+            List<String> batch = new ArrayList<>();
+            for (String task : assigned) {
+                if (batch.size() >= room) {
+                    break;
+                }
+                if (!inFlight.contains(task)) {
+                    batch.add(task);
+                }
+            }
+            // Only this thread takes slots, so the permits counted above are still there
+            if (batch.isEmpty() || !workerSlots.tryAcquire(batch.size())) {
+                return;
+            }
+            int reserved = batch.size();
+            List<String> claimed = List.of();
+            Set<String> handedOff = new HashSet<>();
+            try {
+                claimed = claim(batch);
+                List<String> paths = new ArrayList<>(claimed.size());
+                for (String task : claimed) {
+                    paths.add(assignPath + "/" + task);
+                }
+                for (MultiRead.NodeData node : MultiRead.getData(client, paths)) {
+                    String task = node.path().substring(assignPath.length() + 1);
+                    if (!node.exists()) {
+                        // Completed after the children were listed; the claim is undone below
+                        continue;
+                    }
+                    byte[] data = node.data();
+                    int failures = node.stat().getVersion();
+                    inFlight.add(task);
+                    workerPool.execute(() -> process(task, node.path(), data, failures));
+                    handedOff.add(task);
+                    reserved--;
+                }
+            } finally {
+                // Anything claimed but not handed to the pool is released so it can be claimed again
+                workerSlots.release(reserved);
+                for (String task : claimed) {
+                    if (!handedOff.contains(task)) {
+                        inFlight.remove(task);
+                        releaseClaim(task);
+                    }
+                }
+            }
+            assigned.removeAll(batch);
+        }
+    }
+
+    private void releaseClaim(String task) {
+        try {
+            client.delete().quietly().forPath(OWNERS_PATH + "/" + task);
+        } catch (Exception e) {
+            System.out.println("Could not release claim on job " + task + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the ephemeral owner nodes for a batch in one transaction, falling back to one
+     * at a time if any of them already exists.
+     */
+    private List<String> claim(List<String> tasks) throws Exception {
+        byte[] owner = workerId.getBytes();
+        List<CuratorOp> ops = new ArrayList<>(tasks.size());
+        for (String task : tasks) {
+            ops.add(client.transactionOp().create().withMode(CreateMode.EPHEMERAL).forPath(OWNERS_PATH + "/" + task, owner));
+        }
+        try {
+            client.transaction().forOperations(ops);
+            return tasks;
+        } catch (KeeperException.NodeExistsException e) {
+            List<String> claimed = new ArrayList<>();
+            try {
+                for (String task : tasks) {
+                    try {
+                        client.create().withMode(CreateMode.EPHEMERAL).forPath(OWNERS_PATH + "/" + task, owner);
+                        claimed.add(task);
+                    } catch (KeeperException.NodeExistsException ignored) {
+                        // Still owned by a previous session
+                    }
+                }
+            } catch (Exception failure) {
+                claimed.forEach(this::releaseClaim);
+                throw failure;
+            }
+            return claimed;
+        }
+    }
+
+    /**
+     * Runs a task; {@code failures} is the version of its assignment node, i.e. how many
+     * earlier attempts failed.
+     */
+    private void process(String task, String path, byte[] data, int failures) {
+        boolean done = false;
+        boolean retrying = false;
+        try {
+            // Decoded here so a payload that does not decode fails this task only, not the claim round
+            payloadOf(path, data);
+            // Simulate job work
+            Thread.sleep(taskWorkMs);
+            client.transaction().forOperations(
+                    client.transactionOp().delete().forPath(ASSIGN_PATH + "/" + workerId + "/" + task),
+                    client.transactionOp().delete().forPath(OWNERS_PATH + "/" + task));
+            completed.incrementAndGet();
+            done = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.out.println("Job " + task + " failed (attempt " + (failures + 1) + " of " + maxAttempts + "): " + e.getMessage());
+            retrying = recordFailure(task, path, data, failures);
+        } finally {
+            workerSlots.release();
+            if (retrying) {
+                // Keep the claim, and keep the task out of claim rounds, until the backoff has passed
+                long backoff = Math.min(retryBackoffMaxMs, retryBackoffMs << Math.min(failures, 20));
+                retryScheduler.schedule(() -> {
+                    releaseClaim(task);
+                    inFlight.remove(task);
+                    workerWake.release();
+                }, backoff, TimeUnit.MILLISECONDS);
+            } else {
+                if (!done) {
+                    // Our session is still alive, so the leader would never requeue it; let the next round claim it again
+                    releaseClaim(task);
+                }
+                inFlight.remove(task);
+                workerWake.release();
+            }
+        }
+    }
+
+    /**
+     * Counts a failed attempt by bumping the assignment node's version, or moves the task to
+     * {@code /jobs/failed} once it has used up its attempts. Returns true if it will be retried.
+     */
+    private boolean recordFailure(String task, String path, byte[] data, int failures) {
+        try {
+            if (failures + 1 >= maxAttempts) {
+                client.transaction().forOperations(
+                        client.transactionOp().create().forPath(FAILED_PATH + "/" + task, data),
+                        client.transactionOp().delete().withVersion(failures).forPath(path),
+                        client.transactionOp().delete().forPath(OWNERS_PATH + "/" + task));
+                deadLettered.incrementAndGet();
+                System.out.println("Job " + task + " moved to " + FAILED_PATH + " after " + maxAttempts + " attempts");
+                return false;
+            }
+            client.setData().withVersion(failures).forPath(path, data);
+            retried.incrementAndGet();
+            return true;
+        } catch (Exception e) {
+            System.out.println("Could not record failure of job " + task + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Decompresses gzip payloads. Detected by the gzip magic rather than the current
+     * compression setting, so jobs queued before the setting was toggled still decode.
+     */
+    private static byte[] payloadOf(String path, byte[] data) throws Exception {
+        boolean gzipped = data != null && data.length >= 2 && (data[0] & 0xff) == 0x1f && (data[1] & 0xff) == 0x8b;
+        return gzipped ? GZIP.decompress(path, data) : data;
+    }
+
+    public Map<String, Object> getStatus() throws Exception {
+        Map<String, Object> status = new HashMap<>();
+        status.put("isLeader", leader);
+        status.put("fencingToken", fencingToken);
+        status.put("fenced", fenced);
+        status.put("failoverEnabled", failoverEnabled);
+        status.put("takeovers", takeovers.get());
+        status.put("workerId", workerId);
+        status.put("queued", children(QUEUE_PATH).size());
+        Map<String, Integer> assignments = new HashMap<>();
+        for (String worker : children(ASSIGN_PATH)) {
+            assignments.put(worker, children(ASSIGN_PATH + "/" + worker).size());
+        }
+        status.put("assignments", assignments);
+        status.put("inFlight", inFlight.size());
+        status.put("completed", completed.get());
+        status.put("failed", failed.get());
+        status.put("requeued", requeued.get());
+        status.put("retried", retried.get());
+        status.put("deadLettered", deadLettered.get());
+        status.put("failedTasks", children(FAILED_PATH).size());
+        status.put("assignedByThisLeader", assignedByThisLeader.get());
+        status.put("batchSize", batchSize);
+        status.put("prefetch", prefetch);
+        status.put("maxInFlightPerWorker", maxInFlightPerWorker);
+        return status;
+    }
+
+    private List<String> children(String path) throws Exception {
+        try {
+            return client.getChildren().forPath(path);
+        } catch (KeeperException.NoNodeException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        shutdown.countDown();
+        workerWake.release();
+        leaderWake.release();
+        if (selector != null) {
+            selector.close();
+        }
+        if (workerPool != null) {
+            workerPool.shutdownNow();
+        }
+        if (failoverScheduler != null) {
+            failoverScheduler.shutdownNow();
+        }
+        if (retryScheduler != null) {
+            retryScheduler.shutdownNow();
+        }
+    }
+}
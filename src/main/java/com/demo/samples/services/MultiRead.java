@@ -0,0 +1,63 @@
+package com.demo.samples.services;
+
+import org.apache.curator.CuratorZookeeperClient;
+import org.apache.curator.RetryLoop;
+import org.apache.curator.drivers.OperationTrace;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.data.Stat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads many znodes in a single read-only ZooKeeper {@code multi} (ZooKeeper 3.6+),
+ * so the cost is one round-trip regardless of the number of paths.
+ */
+final class MultiRead {
+
+    /**
+     * Data and stat of one znode; both are null when the node does not exist.
+     */
+    record NodeData(String path, byte[] data, Stat stat) {
+        boolean exists() {
+            return stat != null;
+        }
+    }
+
+    private MultiRead() {
+    }
+
+    static List<NodeData> getData(CuratorFramework client, List<String> paths) throws Exception {
+        List<NodeData> nodes = new ArrayList<>(paths.size());
+        if (paths.isEmpty()) {
+            return nodes;
+        }
+        // The raw ZooKeeper handle does not apply the Curator namespace
+        List<Op> ops = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            ops.add(Op.getData(ZKPaths.fixForNamespace(client.getNamespace(), path)));
+        }
+        // Retried and traced like Curator's own operations, waiting for a reconnect on ConnectionLoss
+        CuratorZookeeperClient zookeeperClient = client.getZookeeperClient();
+        OperationTrace trace = zookeeperClient.startAdvancedTracer("MultiRead-getData");
+        List<OpResult> results = RetryLoop.callWithRetry(zookeeperClient, () -> zookeeperClient.getZooKeeper().multi(ops));
+        trace.commit();
+        for (int i = 0; i < paths.size(); i++) {
+            OpResult result = results.get(i);
+            if (result instanceof OpResult.GetDataResult dataResult) {
+                nodes.add(new NodeData(paths.get(i), dataResult.getData(), dataResult.getStat()));
+            } else if (result instanceof OpResult.ErrorResult error
+                    && error.getErr() == KeeperException.Code.NONODE.intValue()) {
+                nodes.add(new NodeData(paths.get(i), null, null));
+            } else {
+                int err = ((OpResult.ErrorResult) result).getErr();
+                throw KeeperException.create(KeeperException.Code.get(err), paths.get(i));
+            }
+        }
+        return nodes;
+    }
+}
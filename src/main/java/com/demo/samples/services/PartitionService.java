@@ -0,0 +1,108 @@
+package com.demo.samples.services;
+
+import org.apache.curator.x.discovery.ServiceInstance;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Splits {@code partitions.count} partitions across the registered {@code order-service}
+ * instances with a {@link ConsistentHashRing}, recomputed on every service cache change.
+ * {@link #ownerOf(String)} and {@link #isLocal(String)} never leave the JVM.
+ */
+@Service
+public class PartitionService {
+
+    private final CachedServiceDiscovery cachedServiceDiscovery;
+    private final RegistrationService registrationService;
+    private ConsistentHashRing ring;
+    private volatile Map<String, String> addresses = Map.of();
+    private volatile int lastMoved;
+    private final AtomicLong rebalances = new AtomicLong();
+
+    @Value("${partitions.count:1024}")
+    private int partitionCount;
+
+    @Value("${partitions.virtual-nodes:128}")
+    private int virtualNodes;
+
+    public PartitionService(CachedServiceDiscovery cachedServiceDiscovery, RegistrationService registrationService) {
+        this.cachedServiceDiscovery = cachedServiceDiscovery;
+        this.registrationService = registrationService;
+    }
+
+    @PostConstruct
+    public void init() {
+        ring = new ConsistentHashRing(partitionCount, virtualNodes);
+        cachedServiceDiscovery.addListener(this::rebalance);
+        rebalance();
+    }
+
+    private void rebalance() {
+        List<String> ids = new ArrayList<>();
+        Map<String, String> newAddresses = new HashMap<>();
+        for (ServiceInstance<Void> instance : cachedServiceDiscovery.getInstances()) {
+            ids.add(instance.getId());
+            newAddresses.put(instance.getId(), instance.getAddress() + ":" + instance.getPort());
+        }
+        addresses = newAddresses;
+        int moved = ring.update(ids);
+        if (moved > 0) {
+            lastMoved = moved;
+            rebalances.incrementAndGet();
+            System.out.println("Partitions rebalanced across " + ids.size() + " instances, " + moved + " moved");
+        }
+    }
+
+    public String ownerOf(String key) {
+        return ring.ownerOf(key);
+    }
+
+    public boolean isLocal(String key) {
+        ServiceInstance<Void> self = registrationService.getInstance();
+        return self != null && self.getId().equals(ring.ownerOf(key));
+    }
+
+    public Map<String, Object> lookup(String key) {
+        Map<String, Object> result = new HashMap<>();
+        String owner = ring.ownerOf(key);
+        result.put("key", key);
+        result.put("partition", ring.partitionOf(key));
+        if (owner == null) {
+            result.put("status", "error");
+            result.put("message", "No instances registered");
+            return result;
+        }
+        result.put("owner", owner);
+        result.put("address", addresses.get(owner));
+        result.put("isLocal", isLocal(key));
+        return result;
+    }
+
+    public Map<String, Object> getStatus() {
+        ConsistentHashRing.Assignment assignment = ring.getAssignment();
+        Map<String, Integer> owned = new HashMap<>();
+        for (int p = 0; p < assignment.owners().length; p++) {
+            String owner = assignment.ownerOfPartition(p);
+            if (owner != null) {
+                owned.merge(owner, 1, Integer::sum);
+            }
+        }
+        ServiceInstance<Void> self = registrationService.getInstance();
+        Map<String, Object> status = new HashMap<>();
+        status.put("partitions", ring.getPartitions());
+        status.put("virtualNodes", virtualNodes);
+        status.put("partitionsPerInstance", owned);
+        status.put("localInstance", self != null ? self.getId() : null);
+        status.put("version", assignment.version());
+        status.put("rebalances", rebalances.get());
+        status.put("lastRebalanceMoved", lastMoved);
+        return status;
+    }
+}
@@ -0,0 +1,451 @@
+package com.demo.samples.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.queue.DistributedPriorityQueue;
+import org.apache.curator.framework.recipes.queue.DistributedQueue;
+import org.apache.curator.framework.recipes.queue.ErrorMode;
+import org.apache.curator.framework.recipes.queue.MultiItem;
+import org.apache.curator.framework.recipes.queue.QueueBuilder;
+import org.apache.curator.framework.recipes.queue.QueueConsumer;
+import org.apache.curator.framework.recipes.queue.QueueSerializer;
+import org.apache.curator.framework.state.ConnectionState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * String messages on a FIFO {@link DistributedQueue} ({@code /queues/fifo}) and a
+ * {@link DistributedPriorityQueue} ({@code /queues/priority}, lower numbers first).
+ * <p>
+ * Puts are batched: {@link #putBatch} writes up to {@code queue.max-batch} messages as one
+ * {@code putMulti} node, and single FIFO puts arriving within {@code queue.put-linger-ms} of
+ * each other are combined into one. A node holding many messages is also removed with one
+ * delete, so both directions cost well under one ZooKeeper write per message. Curator
+ * requeues a lock-safe node as a whole, so lock-safe delivery is at-least-once: when one
+ * message of a combined node fails, the messages before it that were already processed are
+ * delivered again. Processing must be idempotent, or batching turned off with
+ * {@code queue.max-batch=1} and {@code queue.put-linger-ms=0}.
+ * <p>
+ * Queue consumers push messages into a local buffer of {@code queue.prefetch} entries that
+ * {@code queue.consumer-threads} workers drain in batches. With
+ * {@code queue.consumption=lock-safe} a message stays locked in ZooKeeper until a worker
+ * has processed it and is requeued if that does not happen within
+ * {@code queue.lock-safe-timeout-ms}. With {@code at-most-once} a node is deleted before
+ * its messages are handed over, so the consumer waits for room in the buffer rather than
+ * drop them, and buffered messages are lost only if this instance dies. Every
+ * instance must use the same mode: at-most-once consumers ignore the lock-safe locks.
+ */
+@Service
+public class QueueService {
+
+    private static final String BASE_PATH = "/queues";
+    private static final String FIFO = "fifo";
+    private static final String PRIORITY = "priority";
+
+    private static final QueueSerializer<String> SERIALIZER = new QueueSerializer<>() {
+        @Override
+        public byte[] serialize(String item) {
+            return item.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String deserialize(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    private final CuratorFramework client;
+    private final MeterRegistry meterRegistry;
+    private DistributedQueue<String> fifoQueue;
+    private DistributedPriorityQueue<String> priorityQueue;
+    private BlockingQueue<Entry> buffer;
+    private ExecutorService queueExecutor;
+    private ExecutorService workers;
+    private ScheduledExecutorService putFlusher;
+    private volatile boolean running;
+
+    // Single FIFO puts waiting to be written together; guarded by this
+    private List<String> pendingPuts = new ArrayList<>();
+    private CompletableFuture<Void> pendingFlush;
+
+    private final ConcurrentLinkedDeque<String> consumed = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger consumedSize = new AtomicInteger();
+    private final AtomicLong nodesWritten = new AtomicLong();
+    private final AtomicLong itemsPut = new AtomicLong();
+    private final AtomicLong itemsConsumed = new AtomicLong();
+    private final AtomicLong requeued = new AtomicLong();
+    private Counter fifoPuts;
+    private Counter priorityPuts;
+    private Counter consumedCounter;
+
+    @Value("${queue.consumption:lock-safe}")
+    private String consumption;
+
+    @Value("${queue.prefetch:16}")
+    private int prefetch;
+
+    @Value("${queue.consumer-threads:2}")
+    private int consumerThreads;
+
+    @Value("${queue.take-batch:32}")
+    private int takeBatch;
+
+    @Value("${queue.max-batch:500}")
+    private int maxBatch;
+
+    @Value("${queue.put-linger-ms:5}")
+    private long putLingerMs;
+
+    @Value("${queue.lock-safe-timeout-ms:30000}")
+    private long lockSafeTimeoutMs;
+
+    @Value("${queue.consumed-history:1000}")
+    private int consumedHistory;
+
+    public QueueService(CuratorFramework client, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() throws Exception {
+        boolean lockSafe = isLockSafe();
+        buffer = new ArrayBlockingQueue<>(prefetch);
+        running = true;
+
+        // Curator hands each queue node to this executor; in lock-safe mode every thread holds
+        // one node's lock until its messages are processed
+        queueExecutor = Executors.newFixedThreadPool(prefetch, named("queue-consumer"));
+        putFlusher = Executors.newSingleThreadScheduledExecutor(named("queue-put-flusher"));
+        workers = Executors.newFixedThreadPool(consumerThreads, named("queue-worker"));
+        for (int i = 0; i < consumerThreads; i++) {
+            workers.execute(this::drainBuffer);
+        }
+
+        QueueBuilder<String> fifoBuilder = QueueBuilder.builder(client, consumer(FIFO), SERIALIZER, BASE_PATH + "/" + FIFO)
+                .executor(queueExecutor);
+        QueueBuilder<String> priorityBuilder = QueueBuilder.builder(client, consumer(PRIORITY), SERIALIZER, BASE_PATH + "/" + PRIORITY)
+                .executor(queueExecutor);
+        if (lockSafe) {
+            fifoBuilder.lockPath(BASE_PATH + "/" + FIFO + "-locks");
+            priorityBuilder.lockPath(BASE_PATH + "/" + PRIORITY + "-locks");
+        }
+        fifoQueue = fifoBuilder.buildQueue();
+        priorityQueue = priorityBuilder.buildPriorityQueue(0);
+        if (lockSafe) {
+            fifoQueue.setErrorMode(ErrorMode.REQUEUE);
+            priorityQueue.setErrorMode(ErrorMode.REQUEUE);
+        }
+        fifoQueue.start();
+        priorityQueue.start();
+
+        fifoPuts = meterRegistry.counter("zk.queue.items", "queue", FIFO, "op", "put");
+        priorityPuts = meterRegistry.counter("zk.queue.items", "queue", PRIORITY, "op", "put");
+        consumedCounter = meterRegistry.counter("zk.queue.items", "queue", "all", "op", "consumed");
+        Gauge.builder("zk.queue.depth", fifoQueue, DistributedQueue::getLastMessageCount)
+                .tag("queue", FIFO)
+                .register(meterRegistry);
+        Gauge.builder("zk.queue.depth", priorityQueue, DistributedPriorityQueue::getLastMessageCount)
+                .tag("queue", PRIORITY)
+                .register(meterRegistry);
+        Gauge.builder("zk.queue.buffered", buffer, BlockingQueue::size)
+                .register(meterRegistry);
+    }
+
+    private boolean isLockSafe() {
+        return !"at-most-once".equalsIgnoreCase(consumption);
+    }
+
+    // ========== Producer ==========
+
+    public Map<String, Object> put(String message, Integer priority) throws Exception {
+        Map<String, Object> result = new HashMap<>();
+        if (priority != null) {
+            priorityQueue.put(message, priority);
+            recordPut(PRIORITY, 1);
+        } else if (putLingerMs > 0) {
+            // Written together with other puts from the next few milliseconds
+            enqueuePut(message).get(lockSafeTimeoutMs, TimeUnit.MILLISECONDS);
+        } else {
+            fifoQueue.put(message);
+            recordPut(FIFO, 1);
+        }
+        result.put("status", "success");
+        result.put("message", message);
+        result.put("queue", priority != null ? PRIORITY : FIFO);
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    /**
+     * Writes the messages as {@code putMulti} nodes of up to {@code queue.max-batch} each.
+     */
+    public Map<String, Object> putBatch(List<String> messages, Integer priority) throws Exception {
+        Map<String, Object> result = new HashMap<>();
+        int nodes = 0;
+        int nodeSize = Math.max(1, maxBatch);
+        for (int from = 0; from < messages.size(); from += nodeSize) {
+            List<String> chunk = messages.subList(from, Math.min(messages.size(), from + nodeSize));
+            if (chunk.size() == 1) {
+                if (priority != null) {
+                    priorityQueue.put(chunk.get(0), priority);
+                } else {
+                    fifoQueue.put(chunk.get(0));
+                }
+                recordPut(priority != null ? PRIORITY : FIFO, 1);
+            } else if (priority != null) {
+                priorityQueue.putMulti(multiItem(chunk), priority);
+                recordPut(PRIORITY, chunk.size());
+            } else {
+                fifoQueue.putMulti(multiItem(chunk));
+                recordPut(FIFO, chunk.size());
+            }
+            nodes++;
+        }
+        result.put("status", "success");
+        result.put("queue", priority != null ? PRIORITY : FIFO);
+        result.put("messages", messages.size());
+        result.put("nodesWritten", nodes);
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    private synchronized CompletableFuture<Void> enqueuePut(String message) {
+        pendingPuts.add(message);
+        if (pendingFlush == null) {
+            pendingFlush = new CompletableFuture<>();
+            putFlusher.schedule(this::flushPuts, putLingerMs, TimeUnit.MILLISECONDS);
+        }
+        CompletableFuture<Void> flush = pendingFlush;
+        if (pendingPuts.size() >= maxBatch) {
+            putFlusher.execute(this::flushPuts);
+        }
+        return flush;
+    }
+
+    private void flushPuts() {
+        List<String> batch;
+        CompletableFuture<Void> flush;
+        synchronized (this) {
+            if (pendingPuts.isEmpty()) {
+                return;
+            }
+            batch = pendingPuts;
+            flush = pendingFlush;
+            pendingPuts = new ArrayList<>();
+            pendingFlush = null;
+        }
+        try {
+            fifoQueue.putMulti(multiItem(batch));
+            recordPut(FIFO, batch.size());
+            flush.complete(null);
+        } catch (Exception e) {
+            flush.completeExceptionally(e);
+        }
+    }
+
+    private void recordPut(String queue, int items) {
+        nodesWritten.incrementAndGet();
+        itemsPut.addAndGet(items);
+        (FIFO.equals(queue) ? fifoPuts : priorityPuts).increment(items);
+    }
+
+    private static MultiItem<String> multiItem(List<String> messages) {
+        Iterator<String> iterator = messages.iterator();
+        return () -> iterator.hasNext() ? iterator.next() : null;
+    }
+
+    // ========== Consumer ==========
+
+    private QueueConsumer<String> consumer(String queue) {
+        return new QueueConsumer<>() {
+            @Override
+            public void consumeMessage(String message) throws Exception {
+                Entry entry = new Entry(message);
+                if (!isLockSafe()) {
+                    // The node is already deleted, so a message refused here would be lost
+                    buffer.put(entry);
+                    return;
+                }
+                if (!buffer.offer(entry, lockSafeTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    requeued.incrementAndGet();
+                    throw new TimeoutException("Local queue buffer full");
+                }
+                if (isLockSafe() && !entry.awaitProcessed(lockSafeTimeoutMs)) {
+                    // Throwing requeues the whole node under ErrorMode.REQUEUE, including any
+                    // messages of it that were already processed
+                    requeued.incrementAndGet();
+                    throw new TimeoutException("Message not processed within " + lockSafeTimeoutMs + " ms");
+                }
+            }
+
+            @Override
+            public void stateChanged(CuratorFramework client, ConnectionState newState) {
+                System.out.println("Queue " + queue + " connection state: " + newState);
+            }
+        };
+    }
+
+    private void drainBuffer() {
+        List<Entry> batch = new ArrayList<>(takeBatch);
+        while (running) {
+            try {
+                Entry first = buffer.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, takeBatch - 1);
+                for (Entry entry : batch) {
+                    if (entry.claim()) {
+                        process(entry.message);
+                        entry.processed.countDown();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(String message) {
+        consumed.addLast(message);
+        if (consumedSize.incrementAndGet() > consumedHistory && consumed.pollFirst() != null) {
+            consumedSize.decrementAndGet();
+        }
+        itemsConsumed.incrementAndGet();
+        consumedCounter.increment();
+    }
+
+    public Map<String, Object> getConsumedMessages() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("consumed", new ArrayList<>(consumed));
+        result.put("totalConsumed", itemsConsumed.get());
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    public Map<String, Object> clearConsumed() {
+        int cleared = 0;
+        while (consumed.pollFirst() != null) {
+            consumedSize.decrementAndGet();
+            cleared++;
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("status", "success");
+        result.put("cleared", cleared);
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        long nodes = nodesWritten.get();
+        long items = itemsPut.get();
+        status.put("consumption", isLockSafe() ? "lock-safe" : "at-most-once");
+        status.put("fifoDepth", fifoQueue.getLastMessageCount());
+        status.put("priorityDepth", priorityQueue.getLastMessageCount());
+        status.put("buffered", buffer.size());
+        status.put("itemsPut", items);
+        status.put("nodesWritten", nodes);
+        status.put("writesPerItem", items > 0 ? Math.round(1000.0 * nodes / items) / 1000.0 : 0.0);
+        status.put("itemsConsumed", itemsConsumed.get());
+        status.put("requeued", requeued.get());
+        status.put("timestamp", System.currentTimeMillis());
+        return status;
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * A buffered message. In lock-safe mode the consumer thread waits for a worker to claim
+     * and process it; a message the consumer gave up on is abandoned and skipped.
+     */
+    private static final class Entry {
+        private static final int PENDING = 0;
+        private static final int CLAIMED = 1;
+        private static final int ABANDONED = 2;
+
+        final String message;
+        final AtomicInteger state = new AtomicInteger(PENDING);
+        final CountDownLatch processed = new CountDownLatch(1);
+
+        Entry(String message) {
+            this.message = message;
+        }
+
+        boolean claim() {
+            return state.compareAndSet(PENDING, CLAIMED);
+        }
+
+        boolean awaitProcessed(long timeoutMs) throws InterruptedException {
+            if (processed.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            if (state.compareAndSet(PENDING, ABANDONED)) {
+                return false;
+            }
+            // A worker has it; wait for it to finish rather than requeue a processed message
+            processed.await();
+            return true;
+        }
+    }
+
+    @PreDestroy
+    public void cleanup() throws Exception {
+        flushPuts();
+        running = false;
+        if (fifoQueue != null) {
+            fifoQueue.close();
+        }
+        if (priorityQueue != null) {
+            priorityQueue.close();
+        }
+        if (!isLockSafe() && buffer != null && !buffer.isEmpty()) {
+            System.out.println("Dropping " + buffer.size() + " buffered queue messages (at-most-once)");
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+        if (queueExecutor != null) {
+            queueExecutor.shutdownNow();
+        }
+        if (putFlusher != null) {
+            putFlusher.shutdownNow();
+        }
+    }
+}
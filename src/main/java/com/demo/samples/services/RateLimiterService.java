@@ -0,0 +1,380 @@
+package com.demo.samples.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.shared.SharedCount;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cluster-wide token bucket shared by every registered {@code order-service} instance.
+ * <p>
+ * The bucket lives in one znode ({@link TokenBucket}), updated with a version check so
+ * concurrent refills from different nodes never double-spend; the rate is a
+ * {@link SharedCount} so it can be changed at runtime. Nodes lease tokens from it in
+ * batches and hand them out from a local {@link AtomicLong}, so {@link #tryAcquire(int)}
+ * is a compare-and-set and ZooKeeper is only touched by the background refill, which
+ * starts before the local tokens run out.
+ * <p>
+ * The batch size follows this node's consumption rate, enough for
+ * {@code ratelimit.batch-window-ms} of demand, and is capped at this node's share of the
+ * burst. Tokens left unused for {@code ratelimit.idle-return-ms}, or beyond twice the
+ * current batch size, go back to the bucket. Refills use this node's wall clock, so clock
+ * skew between nodes shifts when tokens are earned but never adds any.
+ */
+@Service
+public class RateLimiterService {
+
+    private static final String BASE_PATH = "/ratelimit";
+    private static final int MAX_REFILL_ATTEMPTS = 10;
+
+    private final CuratorFramework client;
+    private final ExecutorService coordinationExecutor;
+    private final MeterRegistry meterRegistry;
+    private final CachedServiceDiscovery cachedServiceDiscovery;
+    private SharedCount permitsPerSecond;
+    private ScheduledExecutorService sampler;
+    private String bucketPath;
+
+    private final AtomicLong localTokens = new AtomicLong();
+    private final AtomicBoolean refilling = new AtomicBoolean(false);
+    // Largest request that found the local batch short since the last refill
+    private final AtomicLong shortfall = new AtomicLong();
+    // Consumed since the last rate sample
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLong refills = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong returned = new AtomicLong();
+    private volatile int batchSize;
+    private volatile double consumptionRate;
+    // Bucket was empty: no refill before this (System.nanoTime)
+    private volatile long refillNotBefore;
+    private long idleMs;
+
+    @Value("${ratelimit.name:order-service}")
+    private String name;
+
+    @Value("${ratelimit.permits-per-second:1000}")
+    private int defaultPermitsPerSecond;
+
+    @Value("${ratelimit.burst:2000}")
+    private long burst;
+
+    @Value("${ratelimit.min-batch:10}")
+    private int minBatch;
+
+    @Value("${ratelimit.max-batch:500}")
+    private int maxBatch;
+
+    @Value("${ratelimit.batch-window-ms:100}")
+    private long batchWindowMs;
+
+    @Value("${ratelimit.idle-return-ms:1000}")
+    private long idleReturnMs;
+
+    public RateLimiterService(CuratorFramework client, ExecutorService coordinationExecutor, MeterRegistry meterRegistry,
+                              CachedServiceDiscovery cachedServiceDiscovery) {
+        this.client = client;
+        this.coordinationExecutor = coordinationExecutor;
+        this.meterRegistry = meterRegistry;
+        this.cachedServiceDiscovery = cachedServiceDiscovery;
+    }
+
+    @PostConstruct
+    public void init() throws Exception {
+        bucketPath = BASE_PATH + "/" + name + "/bucket";
+        permitsPerSecond = new SharedCount(client, BASE_PATH + "/" + name + "/permits-per-second", defaultPermitsPerSecond);
+        permitsPerSecond.start();
+        batchSize = minBatch;
+
+        FunctionCounter.builder("zk.ratelimit.decisions", allowed, LongAdder::sum)
+                .tag("result", "allowed")
+                .register(meterRegistry);
+        FunctionCounter.builder("zk.ratelimit.decisions", rejected, LongAdder::sum)
+                .tag("result", "rejected")
+                .register(meterRegistry);
+        Gauge.builder("zk.ratelimit.local.tokens", localTokens, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("zk.ratelimit.batch.size", this, service -> service.batchSize)
+                .register(meterRegistry);
+
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ratelimit-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+        sampler.scheduleWithFixedDelay(this::sample, batchWindowMs, batchWindowMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Takes {@code permits} tokens from the local batch without blocking. When the batch is
+     * short this returns false and starts a refill rather than waiting for one.
+     */
+    public boolean tryAcquire(int permits) {
+        if (take(permits)) {
+            allowed.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Like {@link #tryAcquire(int)}, but waits up to {@code timeoutMs} for a refill.
+     */
+    public boolean acquire(int permits, long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (!take(permits)) {
+            if (System.nanoTime() - deadline >= 0) {
+                rejected.increment();
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        allowed.increment();
+        return true;
+    }
+
+    private boolean take(int permits) {
+        long available;
+        do {
+            available = localTokens.get();
+            if (available < permits) {
+                // Lets the next refill cover requests larger than the batch
+                shortfall.accumulateAndGet(permits - available, Math::max);
+                requestRefill();
+                return false;
+            }
+        } while (!localTokens.compareAndSet(available, available - permits));
+        consumed.add(permits);
+        // Refill ahead of running dry
+        if (available - permits <= batchSize / 2) {
+            requestRefill();
+        }
+        return true;
+    }
+
+    public Map<String, Object> requestPermits(int permits, long timeoutMs) {
+        Map<String, Object> result = new HashMap<>();
+        if (permits < 1 || permits > burst) {
+            result.put("status", "error");
+            result.put("message", "permits must be between 1 and " + burst);
+            return result;
+        }
+        boolean granted = timeoutMs > 0 ? acquire(permits, timeoutMs) : tryAcquire(permits);
+        result.put("status", granted ? "success" : "failed");
+        result.put("allowed", granted);
+        result.put("permits", permits);
+        result.put("localTokens", localTokens.get());
+        if (!granted) {
+            result.put("message", "Rate limit of " + permitsPerSecond.getCount() + "/s exceeded");
+        }
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    public Map<String, Object> setPermitsPerSecond(int value) throws Exception {
+        Map<String, Object> result = new HashMap<>();
+        if (value < 0) {
+            result.put("status", "error");
+            result.put("message", "permitsPerSecond must not be negative");
+            return result;
+        }
+        permitsPerSecond.setCount(value);
+        result.put("status", "success");
+        result.put("permitsPerSecond", value);
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    // Single flight: at most one refill per node is in progress
+    private void requestRefill() {
+        if (refillNotBefore - System.nanoTime() > 0 || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        coordinationExecutor.execute(() -> {
+            try {
+                refill();
+            } catch (Exception e) {
+                System.out.println("Rate limiter refill failed: " + e.getMessage());
+            } finally {
+                refilling.set(false);
+            }
+        });
+    }
+
+    private void refill() throws Exception {
+        long wanted = Math.max(batchSize - localTokens.get(), shortfall.getAndSet(0));
+        if (wanted <= 0) {
+            return;
+        }
+        int rate = permitsPerSecond.getCount();
+        for (int attempt = 0; attempt < MAX_REFILL_ATTEMPTS; attempt++) {
+            long now = System.currentTimeMillis();
+            Stat stat = new Stat();
+            TokenBucket bucket;
+            try {
+                bucket = TokenBucket.decode(client.getData().storingStatIn(stat).forPath(bucketPath));
+            } catch (KeeperException.NoNodeException e) {
+                createBucket(now);
+                continue;
+            }
+            bucket = bucket.refill(now, rate, burst);
+            long taken = Math.min(wanted, bucket.available());
+            if (taken == 0) {
+                exhausted.incrementAndGet();
+                long waitMs = Math.max(1, bucket.millisUntilToken(rate));
+                refillNotBefore = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.min(waitMs, 1000));
+                return;
+            }
+            try {
+                client.setData().withVersion(stat.getVersion()).forPath(bucketPath, bucket.take(taken).encode());
+            } catch (KeeperException.BadVersionException e) {
+                // Another node refilled in between
+                conflicts.incrementAndGet();
+                continue;
+            }
+            localTokens.addAndGet(taken);
+            refills.incrementAndGet();
+            return;
+        }
+    }
+
+    private void createBucket(long now) throws Exception {
+        try {
+            client.create().creatingParentsIfNeeded().forPath(bucketPath, TokenBucket.full(burst, now).encode());
+        } catch (KeeperException.NodeExistsException e) {
+            // Created by another node
+        }
+    }
+
+    /**
+     * Puts tokens back into the global bucket, retrying on version conflicts.
+     */
+    private void giveBack(long tokens) throws Exception {
+        for (int attempt = 0; attempt < MAX_REFILL_ATTEMPTS; attempt++) {
+            Stat stat = new Stat();
+            TokenBucket bucket;
+            try {
+                bucket = TokenBucket.decode(client.getData().storingStatIn(stat).forPath(bucketPath));
+            } catch (KeeperException.NoNodeException e) {
+                return;
+            }
+            bucket = bucket.refill(System.currentTimeMillis(), permitsPerSecond.getCount(), burst).giveBack(tokens, burst);
+            try {
+                client.setData().withVersion(stat.getVersion()).forPath(bucketPath, bucket.encode());
+                returned.addAndGet(tokens);
+                return;
+            } catch (KeeperException.BadVersionException e) {
+                conflicts.incrementAndGet();
+            }
+        }
+        System.out.println("Rate limiter could not return " + tokens + " tokens after " + MAX_REFILL_ATTEMPTS + " attempts");
+    }
+
+    /**
+     * Runs every {@code ratelimit.batch-window-ms}: updates the consumption rate and batch
+     * size and returns tokens this node is not using.
+     */
+    private void sample() {
+        try {
+            long used = consumed.sumThenReset();
+            double rate = used * 1000.0 / batchWindowMs;
+            // Smooth over a few windows so one burst does not swing the batch size
+            consumptionRate = consumptionRate * 0.5 + rate * 0.5;
+            batchSize = batchSize(consumptionRate);
+            idleMs = used == 0 ? idleMs + batchWindowMs : 0;
+
+            long surplus;
+            if (idleMs >= idleReturnMs) {
+                surplus = localTokens.getAndSet(0);
+            } else {
+                surplus = takeSurplus(2L * batchSize);
+            }
+            if (surplus > 0) {
+                giveBack(surplus);
+            }
+        } catch (Exception e) {
+            System.out.println("Rate limiter sample failed: " + e.getMessage());
+        }
+    }
+
+    private long takeSurplus(long keep) {
+        long available;
+        do {
+            available = localTokens.get();
+            if (available <= keep) {
+                return 0;
+            }
+        } while (!localTokens.compareAndSet(available, keep));
+        return available - keep;
+    }
+
+    private int batchSize(double rate) {
+        long target = (long) Math.ceil(rate * batchWindowMs / 1000.0);
+        // Never hold more than an even share of the burst, so one node cannot starve the rest
+        int instances = Math.max(1, cachedServiceDiscovery.getInstances().size());
+        long fairShare = Math.max(1, burst / instances);
+        return (int) Math.max(minBatch, Math.min(target, Math.min(maxBatch, fairShare)));
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("name", name);
+        status.put("permitsPerSecond", permitsPerSecond.getCount());
+        status.put("burst", burst);
+        status.put("localTokens", localTokens.get());
+        status.put("batchSize", batchSize);
+        status.put("consumptionRate", Math.round(consumptionRate * 10) / 10.0);
+        status.put("instances", cachedServiceDiscovery.getInstances().size());
+        status.put("allowed", allowed.sum());
+        status.put("rejected", rejected.sum());
+        status.put("refills", refills.get());
+        status.put("conflicts", conflicts.get());
+        status.put("exhausted", exhausted.get());
+        status.put("returned", returned.get());
+        try {
+            TokenBucket bucket = TokenBucket.decode(client.getData().forPath(bucketPath))
+                    .refill(System.currentTimeMillis(), permitsPerSecond.getCount(), burst);
+            status.put("bucketTokens", bucket.available());
+        } catch (Exception e) {
+            status.put("bucketTokens", null);
+        }
+        status.put("timestamp", System.currentTimeMillis());
+        return status;
+    }
+
+    @PreDestroy
+    public void cleanup() throws Exception {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+        long unused = localTokens.getAndSet(0);
+        if (unused > 0) {
+            giveBack(unused);
+        }
+        if (permitsPerSecond != null) {
+            permitsPerSecond.close();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.demo.samples.services;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
 import org.springframework.stereotype.Service;
@@ -11,17 +12,35 @@ import java.util.concurrent.TimeUnit;
 @Service
 public class ReadWriteLockService {
 
+    private static final String LOCK_PATH = "/locks/read-write-lock";
+
     private final CuratorFramework client;
     private final InterProcessReadWriteLock readWriteLock;
+    private final LockRegistry lockRegistry;
+    private final LockIntrospectionService lockIntrospection;
+    private final LockMetrics readMetrics;
+    private final LockMetrics writeMetrics;
+    private volatile long readHeldSinceNanos;
+    private volatile long writeHeldSinceNanos;
 
-    public ReadWriteLockService(CuratorFramework client) {
+    public ReadWriteLockService(CuratorFramework client, LockRegistry lockRegistry, LockIntrospectionService lockIntrospection,
+                                MeterRegistry meterRegistry) {
         this.client = client;
-        this.readWriteLock = new InterProcessReadWriteLock(client, "/locks/read-write-lock");
+        this.lockRegistry = lockRegistry;
+        this.lockIntrospection = lockIntrospection;
+        this.readWriteLock = new InterProcessReadWriteLock(client, LOCK_PATH);
+        this.readMetrics = new LockMetrics(meterRegistry, "read");
+        this.writeMetrics = new LockMetrics(meterRegistry, "write");
     }
 
     public Map<String, Object> acquireReadLock(long timeout) throws Exception {
         Map<String, Object> result = new HashMap<>();
+        long waitStart = System.nanoTime();
         boolean acquired = readWriteLock.readLock().acquire(timeout, TimeUnit.SECONDS);
+        readMetrics.recordAcquire(waitStart, acquired);
+        if (acquired) {
+            readHeldSinceNanos = System.nanoTime();
+        }
         result.put("readLockAcquired", acquired);
         result.put("isAcquiredInThisProcess", readWriteLock.readLock().isAcquiredInThisProcess());
         result.put("timestamp", System.currentTimeMillis());
@@ -32,6 +51,7 @@ public class ReadWriteLockService {
         Map<String, Object> result = new HashMap<>();
         if (readWriteLock.readLock().isAcquiredInThisProcess()) {
             readWriteLock.readLock().release();
+            readMetrics.recordHold(readHeldSinceNanos);
             result.put("readLockReleased", true);
         } else {
             result.put("readLockReleased", false);
@@ -42,7 +62,12 @@ public class ReadWriteLockService {
 
     public Map<String, Object> acquireWriteLock(long timeout) throws Exception {
         Map<String, Object> result = new HashMap<>();
+        long waitStart = System.nanoTime();
         boolean acquired = readWriteLock.writeLock().acquire(timeout, TimeUnit.SECONDS);
+        writeMetrics.recordAcquire(waitStart, acquired);
+        if (acquired) {
+            writeHeldSinceNanos = System.nanoTime();
+        }
         result.put("writeLockAcquired", acquired);
         result.put("isAcquiredInThisProcess", readWriteLock.writeLock().isAcquiredInThisProcess());
         result.put("timestamp", System.currentTimeMillis());
@@ -53,6 +78,7 @@ public class ReadWriteLockService {
         Map<String, Object> result = new HashMap<>();
         if (readWriteLock.writeLock().isAcquiredInThisProcess()) {
             readWriteLock.writeLock().release();
+            writeMetrics.recordHold(writeHeldSinceNanos);
             result.put("writeLockReleased", true);
         } else {
             result.put("writeLockReleased", false);
@@ -62,9 +88,25 @@ public class ReadWriteLockService {
     }
 
     public Map<String, Object> performRead(String resource) throws Exception {
+        // Reads and writes lock only the resource's own stripe, not the global lock
+        LockRegistry.LockEntry entry = lockRegistry.checkout(resource);
+        try {
+            Map<String, Object> result = performRead(resource, entry.getReadWriteLock());
+            result.put("lockPath", entry.getPath());
+            return result;
+        } finally {
+            lockRegistry.checkin(entry);
+        }
+    }
+
+    private Map<String, Object> performRead(String resource, InterProcessReadWriteLock readWriteLock) throws Exception {
         Map<String, Object> result = new HashMap<>();
         
-        if (readWriteLock.readLock().acquire(10, TimeUnit.SECONDS)) {
+        long waitStart = System.nanoTime();
+        boolean acquired = readWriteLock.readLock().acquire(10, TimeUnit.SECONDS);
+        readMetrics.recordAcquire(waitStart, acquired);
+        if (acquired) {
+            long acquiredAt = System.nanoTime();
             try {
                 // Simulate read operation
                 Thread.sleep(1000);
@@ -74,6 +116,7 @@ public class ReadWriteLockService {
                 result.put("message", "Read operation completed successfully");
             } finally {
                 readWriteLock.readLock().release();
+                readMetrics.recordHold(acquiredAt);
             }
         } else {
             result.put("status", "failed");
@@ -84,9 +127,24 @@ public class ReadWriteLockService {
     }
 
     public Map<String, Object> performWrite(String resource, String data) throws Exception {
+        LockRegistry.LockEntry entry = lockRegistry.checkout(resource);
+        try {
+            Map<String, Object> result = performWrite(resource, data, entry.getReadWriteLock());
+            result.put("lockPath", entry.getPath());
+            return result;
+        } finally {
+            lockRegistry.checkin(entry);
+        }
+    }
+
+    private Map<String, Object> performWrite(String resource, String data, InterProcessReadWriteLock readWriteLock) throws Exception {
         Map<String, Object> result = new HashMap<>();
         
-        if (readWriteLock.writeLock().acquire(10, TimeUnit.SECONDS)) {
+        long waitStart = System.nanoTime();
+        boolean acquired = readWriteLock.writeLock().acquire(10, TimeUnit.SECONDS);
+        writeMetrics.recordAcquire(waitStart, acquired);
+        if (acquired) {
+            long acquiredAt = System.nanoTime();
             try {
                 // Simulate write operation
                 Thread.sleep(2000);
@@ -97,6 +155,7 @@ public class ReadWriteLockService {
                 result.put("message", "Write operation completed successfully");
             } finally {
                 readWriteLock.writeLock().release();
+                writeMetrics.recordHold(acquiredAt);
             }
         } else {
             result.put("status", "failed");
@@ -110,6 +169,10 @@ public class ReadWriteLockService {
         Map<String, Object> status = new HashMap<>();
         status.put("readLockAcquired", readWriteLock.readLock().isAcquiredInThisProcess());
         status.put("writeLockAcquired", readWriteLock.writeLock().isAcquiredInThisProcess());
+        Map<String, Object> zk = lockIntrospection.inspect(LOCK_PATH);
+        status.put("readers", zk.get("readers"));
+        status.put("writers", zk.get("writers"));
+        status.put("waiters", zk.get("waiters"));
         return status;
     }
 }
@@ -7,6 +7,8 @@ import org.apache.curator.x.discovery.ServiceInstance;
 import org.springframework.boot.web.server.context.WebServerInitializedEvent;
 import org.springframework.boot.web.server.servlet.context.ServletWebServerApplicationContext;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -15,6 +17,7 @@ public class RegistrationService {
     private final ServletWebServerApplicationContext context;    private int port;
 
     private final ServiceDiscovery<Void> serviceDiscovery;
+    private volatile ServiceInstance<Void> instance;
 
     public RegistrationService(ServletWebServerApplicationContext context, CuratorFramework client, ServiceDiscovery<Void> serviceDiscovery) throws Exception {
         this.context = context;
@@ -22,11 +25,13 @@ public class RegistrationService {
     }
 
 
+    // Registers before other WebServerInitializedEvent listeners, which use the instance id
     @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
     public void onApplicationEvent(WebServerInitializedEvent event) throws Exception {
         int actualPort = event.getWebServer().getPort();
 
-        ServiceInstance<Void> instance = ServiceInstance.<Void>builder()
+        instance = ServiceInstance.<Void>builder()
                 .name("order-service")
                 .address("localhost")
                 .port(actualPort) // This will now correctly be 8073
@@ -36,5 +41,9 @@ public class RegistrationService {
         System.out.println("Successfully registered to Zookeeper on port: " + actualPort);
     }
 
+    public ServiceInstance<Void> getInstance() {
+        return instance;
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,401 @@
+package com.demo.samples.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreV2;
+import org.apache.curator.framework.recipes.locks.Lease;
+import org.apache.curator.framework.recipes.shared.SharedCount;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counted limiter on top of {@link InterProcessSemaphoreV2}, with the cluster-wide lease
+ * count held in a {@link SharedCount} so it can be changed at runtime.
+ * <p>
+ * Released leases go back to a local spare pool instead of to ZooKeeper, and the pool is
+ * topped up in the background after a miss, so most acquires on a busy node never leave
+ * the JVM. Spare leases count against the global limit, so any that stay unused for
+ * {@code semaphore.spare-idle-ms} are returned to ZooKeeper, and the pool never holds more
+ * than {@code semaphore.spare-share} of the leases other nodes could still take. Spares are
+ * dropped when the session is lost and checked against ZooKeeper after a reconnect.
+ */
+@Service
+public class SemaphoreService {
+
+    private static final String BASE_PATH = "/semaphores/downstream";
+
+    private final CuratorFramework client;
+    private final ExecutorService coordinationExecutor;
+    private final MeterRegistry meterRegistry;
+    private final LockMetrics metrics;
+    private final Counter poolHits;
+    private final Counter poolMisses;
+    private SharedCount maxLeases;
+    private InterProcessSemaphoreV2 semaphore;
+    private ScheduledExecutorService reaper;
+    private ConnectionStateListener connectionListener;
+
+    private final ConcurrentLinkedDeque<SpareLease> spare = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger spareCount = new AtomicInteger();
+    private final Map<String, Grant> grants = new ConcurrentHashMap<>();
+    private final AtomicInteger leasesInUse = new AtomicInteger();
+    private final AtomicBoolean prefetching = new AtomicBoolean(false);
+    private volatile int spareLimit;
+
+    @Value("${semaphore.max-leases:10}")
+    private int defaultMaxLeases;
+
+    @Value("${semaphore.prefetch:2}")
+    private int prefetch;
+
+    @Value("${semaphore.max-spare:4}")
+    private int maxSpare;
+
+    @Value("${semaphore.spare-idle-ms:2000}")
+    private long spareIdleMs;
+
+    @Value("${semaphore.spare-share:0.5}")
+    private double spareShare;
+
+    public SemaphoreService(CuratorFramework client, ExecutorService coordinationExecutor, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.coordinationExecutor = coordinationExecutor;
+        this.meterRegistry = meterRegistry;
+        this.metrics = new LockMetrics(meterRegistry, "semaphore");
+        this.poolHits = meterRegistry.counter("zk.semaphore.pool", "result", "hit");
+        this.poolMisses = meterRegistry.counter("zk.semaphore.pool", "result", "miss");
+    }
+
+    @PostConstruct
+    public void init() throws Exception {
+        maxLeases = new SharedCount(client, BASE_PATH + "/max-leases", defaultMaxLeases);
+        maxLeases.start();
+        semaphore = new InterProcessSemaphoreV2(client, BASE_PATH + "/leases", maxLeases);
+        spareLimit = maxSpare;
+
+        connectionListener = (c, newState) -> {
+            if (newState == ConnectionState.LOST) {
+                // The lease nodes may already be gone; never hand them out again
+                returnSpares(Integer.MAX_VALUE);
+            } else if (newState == ConnectionState.RECONNECTED) {
+                coordinationExecutor.execute(this::validateSpares);
+            }
+        };
+        client.getConnectionStateListenable().addListener(connectionListener);
+
+        Gauge.builder("zk.semaphore.leases", leasesInUse, AtomicInteger::get)
+                .tag("state", "in-use")
+                .register(meterRegistry);
+        Gauge.builder("zk.semaphore.leases", spareCount, AtomicInteger::get)
+                .tag("state", "spare")
+                .register(meterRegistry);
+        Gauge.builder("zk.semaphore.utilisation", this, SemaphoreService::getUtilisation)
+                .register(meterRegistry);
+
+        reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "semaphore-spare-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(100, spareIdleMs / 2);
+        reaper.scheduleWithFixedDelay(this::returnIdleSpares, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Map<String, Object> acquire(int permits, long timeout) throws Exception {
+        Map<String, Object> result = new HashMap<>();
+        if (permits < 1 || permits > maxLeases.getCount()) {
+            result.put("status", "error");
+            result.put("message", "permits must be between 1 and " + maxLeases.getCount());
+            return result;
+        }
+        long waitStart = System.nanoTime();
+        List<Lease> leases = acquireLeases(permits, timeout, TimeUnit.SECONDS);
+        metrics.recordAcquire(waitStart, leases != null);
+        if (leases == null) {
+            result.put("status", "failed");
+            result.put("message", "Could not acquire " + permits + " leases within timeout");
+            return result;
+        }
+        String leaseId = UUID.randomUUID().toString();
+        grants.put(leaseId, new Grant(leases, System.nanoTime()));
+        result.put("status", "success");
+        result.put("leaseId", leaseId);
+        result.put("permits", permits);
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    public Map<String, Object> release(String leaseId) throws Exception {
+        Map<String, Object> result = new HashMap<>();
+        Grant grant = grants.remove(leaseId);
+        if (grant == null) {
+            result.put("released", false);
+            result.put("message", "Unknown lease id: " + leaseId);
+        } else {
+            releaseLeases(grant.leases);
+            metrics.recordHold(grant.acquiredNanos);
+            result.put("released", true);
+            result.put("permits", grant.leases.size());
+        }
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    public Map<String, Object> performThrottled(String operation, int permits) throws Exception {
+        Map<String, Object> result = new HashMap<>();
+        if (permits < 1 || permits > maxLeases.getCount()) {
+            result.put("status", "error");
+            result.put("message", "permits must be between 1 and " + maxLeases.getCount());
+            return result;
+        }
+
+        long waitStart = System.nanoTime();
+        List<Lease> leases = acquireLeases(permits, 10, TimeUnit.SECONDS);
+        metrics.recordAcquire(waitStart, leases != null);
+        if (leases != null) {
+            long acquiredAt = System.nanoTime();
+            try {
+                // Simulate a call to the throttled downstream system
+                Thread.sleep(2000);
+                result.put("status", "success");
+                result.put("operation", operation);
+                result.put("permits", permits);
+                result.put("message", "Throttled operation executed successfully");
+            } finally {
+                releaseLeases(leases);
+                metrics.recordHold(acquiredAt);
+            }
+        } else {
+            result.put("status", "failed");
+            result.put("message", "Could not acquire leases within timeout");
+        }
+
+        return result;
+    }
+
+    public Map<String, Object> setMaxLeases(int value) throws Exception {
+        Map<String, Object> result = new HashMap<>();
+        maxLeases.setCount(value);
+        result.put("status", "success");
+        result.put("maxLeases", value);
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    /**
+     * Takes spare leases first and acquires only the remainder from ZooKeeper, in one call.
+     * Returns null on timeout, with any spare leases already taken put back.
+     */
+    private List<Lease> acquireLeases(int permits, long time, TimeUnit unit) throws Exception {
+        List<Lease> leases = new ArrayList<>(permits);
+        while (leases.size() < permits) {
+            SpareLease spareLease = spare.pollFirst();
+            if (spareLease == null) {
+                break;
+            }
+            spareCount.decrementAndGet();
+            leases.add(spareLease.lease);
+        }
+        int missing = permits - leases.size();
+        if (missing == 0) {
+            poolHits.increment();
+        } else {
+            poolMisses.increment();
+            Collection<Lease> acquired;
+            try {
+                acquired = semaphore.acquire(missing, time, unit);
+            } catch (Exception e) {
+                releaseLeases(leases);
+                throw e;
+            }
+            if (acquired == null) {
+                releaseLeases(leases);
+                return null;
+            }
+            leases.addAll(acquired);
+            prefetchAsync();
+        }
+        leasesInUse.addAndGet(leases.size());
+        return leases;
+    }
+
+    private void releaseLeases(List<Lease> leases) {
+        leasesInUse.addAndGet(-leases.size());
+        List<Lease> surplus = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Lease lease : leases) {
+            if (spareCount.incrementAndGet() <= spareLimit) {
+                spare.offerFirst(new SpareLease(lease, now));
+            } else {
+                spareCount.decrementAndGet();
+                surplus.add(lease);
+            }
+        }
+        if (!surplus.isEmpty()) {
+            semaphore.returnAll(surplus);
+        }
+    }
+
+    private void prefetchAsync() {
+        if (prefetch <= 0 || spareCount.get() >= spareLimit || !prefetching.compareAndSet(false, true)) {
+            return;
+        }
+        coordinationExecutor.execute(() -> {
+            try {
+                updateSpareLimit();
+                int wanted = Math.min(prefetch, spareLimit - spareCount.get());
+                if (wanted <= 0) {
+                    return;
+                }
+                // Zero wait: only take leases that are free right now, never queue behind other nodes
+                Collection<Lease> leases = semaphore.acquire(wanted, 0, TimeUnit.MILLISECONDS);
+                if (leases != null) {
+                    leasesInUse.addAndGet(leases.size());
+                    releaseLeases(new ArrayList<>(leases));
+                }
+            } catch (Exception e) {
+                System.out.println("Semaphore prefetch failed: " + e.getMessage());
+            } finally {
+                prefetching.set(false);
+            }
+        });
+    }
+
+    private void returnIdleSpares() {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(spareIdleMs);
+        List<Lease> idle = new ArrayList<>();
+        // Oldest spares are at the tail
+        SpareLease oldest;
+        while ((oldest = spare.peekLast()) != null && oldest.returnedAt < cutoff) {
+            if (spare.removeLastOccurrence(oldest)) {
+                spareCount.decrementAndGet();
+                idle.add(oldest.lease);
+            }
+        }
+        if (!idle.isEmpty()) {
+            semaphore.returnAll(idle);
+        }
+        try {
+            updateSpareLimit();
+        } catch (Exception e) {
+            System.out.println("Semaphore spare limit update failed: " + e.getMessage());
+        }
+        returnSpares(spareCount.get() - spareLimit);
+    }
+
+    /**
+     * Limits the pool to a share of the leases that are free or spare here. Lease nodes beyond
+     * the limit belong to waiters, in which case no spares are kept at all.
+     */
+    private void updateSpareLimit() throws Exception {
+        int max = maxLeases.getCount();
+        int nodes;
+        try {
+            nodes = semaphore.getParticipantNodes().size();
+        } catch (KeeperException.NoNodeException e) {
+            // No lease has been taken since the container node was removed
+            nodes = 0;
+        }
+        if (nodes > max) {
+            spareLimit = 0;
+            return;
+        }
+        int available = max - nodes + spareCount.get();
+        spareLimit = Math.min(maxSpare, (int) (available * spareShare));
+    }
+
+    // Returns up to count spares to ZooKeeper, oldest first
+    private void returnSpares(int count) {
+        List<Lease> returned = new ArrayList<>();
+        SpareLease oldest;
+        while (returned.size() < count && (oldest = spare.pollLast()) != null) {
+            spareCount.decrementAndGet();
+            returned.add(oldest.lease);
+        }
+        if (!returned.isEmpty()) {
+            semaphore.returnAll(returned);
+        }
+    }
+
+    // After a reconnect, drops spares whose lease node did not survive in this session
+    private void validateSpares() {
+        try {
+            long sessionId = client.getZookeeperClient().getZooKeeper().getSessionId();
+            for (SpareLease spareLease : spare) {
+                Stat stat = client.checkExists().forPath(spareLease.lease.getNodeName());
+                if ((stat == null || stat.getEphemeralOwner() != sessionId) && spare.removeFirstOccurrence(spareLease)) {
+                    spareCount.decrementAndGet();
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("Semaphore spare validation failed, dropping spares: " + e.getMessage());
+            returnSpares(Integer.MAX_VALUE);
+        }
+    }
+
+    private double getUtilisation() {
+        int max = maxLeases != null ? maxLeases.getCount() : 0;
+        return max > 0 ? (double) leasesInUse.get() / max : 0;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("maxLeases", maxLeases.getCount());
+        status.put("leasesInUse", leasesInUse.get());
+        status.put("spareLeases", spareCount.get());
+        status.put("spareLimit", spareLimit);
+        status.put("activeGrants", grants.size());
+        status.put("utilisation", getUtilisation());
+        status.put("poolHits", (long) poolHits.count());
+        status.put("poolMisses", (long) poolMisses.count());
+        return status;
+    }
+
+    @PreDestroy
+    public void cleanup() throws Exception {
+        if (connectionListener != null) {
+            client.getConnectionStateListenable().removeListener(connectionListener);
+        }
+        if (reaper != null) {
+            reaper.shutdownNow();
+        }
+        List<Lease> held = new ArrayList<>();
+        spare.forEach(spareLease -> held.add(spareLease.lease));
+        grants.values().forEach(grant -> held.addAll(grant.leases));
+        if (semaphore != null) {
+            semaphore.returnAll(held);
+        }
+        if (maxLeases != null) {
+            maxLeases.close();
+        }
+    }
+
+    private record SpareLease(Lease lease, long returnedAt) {
+    }
+
+    private record Grant(List<Lease> leases, long acquiredNanos) {
+    }
+}
@@ -0,0 +1,235 @@
+package com.demo.samples.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.atomic.AtomicValue;
+import org.apache.curator.framework.recipes.atomic.DistributedAtomicLong;
+import org.apache.curator.framework.recipes.atomic.PromotedToLock;
+import org.apache.curator.retry.RetryNTimes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cluster-wide unique, increasing-per-node IDs handed out from leased ranges.
+ * <p>
+ * Each named sequence is a {@link DistributedAtomicLong} at {@code /sequences/<name>}. A node
+ * reserves {@code sequence.range-size} IDs with a single {@code add()} (promoted to a lock
+ * when the optimistic attempts keep colliding) and serves them from a local
+ * {@link AtomicLong}, so an ID costs one {@code getAndIncrement}. The next range is fetched
+ * in the background once {@code sequence.prefetch-threshold} of the current one is left;
+ * IDs of a range not used before shutdown are skipped, never reissued.
+ */
+@Service
+public class SequenceService {
+
+    private static final String BASE_PATH = "/sequences";
+    private static final Range EXHAUSTED = new Range(1, 0);
+
+    private final CuratorFramework client;
+    private final ExecutorService coordinationExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Sequence> sequences = new ConcurrentHashMap<>();
+
+    @Value("${sequence.range-size:10000}")
+    private long rangeSize;
+
+    @Value("${sequence.prefetch-threshold:0.25}")
+    private double prefetchThreshold;
+
+    public SequenceService(CuratorFramework client, ExecutorService coordinationExecutor, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.coordinationExecutor = coordinationExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Map<String, Object> next(String name) {
+        Map<String, Object> invalid = ZnodeNames.validate("sequence", name, Set.of());
+        if (invalid != null) {
+            return invalid;
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("sequence", name);
+        result.put("id", sequence(name).next());
+        return result;
+    }
+
+    /**
+     * {@code count} IDs, taken from the current range in one step where it has enough left.
+     */
+    public Map<String, Object> next(String name, int count) {
+        Map<String, Object> invalid = ZnodeNames.validate("sequence", name, Set.of());
+        if (invalid != null) {
+            return invalid;
+        }
+        Map<String, Object> result = new HashMap<>();
+        if (count < 1 || count > rangeSize) {
+            result.put("status", "error");
+            result.put("message", "count must be between 1 and " + rangeSize);
+            return result;
+        }
+        result.put("sequence", name);
+        result.put("ids", sequence(name).next(count));
+        return result;
+    }
+
+    private Sequence sequence(String name) {
+        return sequences.computeIfAbsent(name, Sequence::new);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        Map<String, Object> bySequence = new HashMap<>();
+        sequences.forEach((name, sequence) -> bySequence.put(name, sequence.getStatus()));
+        status.put("sequences", bySequence);
+        status.put("rangeSize", rangeSize);
+        status.put("prefetchThreshold", prefetchThreshold);
+        status.put("timestamp", System.currentTimeMillis());
+        return status;
+    }
+
+    private record Range(AtomicLong next, AtomicBoolean prefetchRequested, long first, long last) {
+
+        Range(long first, long last) {
+            this(new AtomicLong(first), new AtomicBoolean(), first, last);
+        }
+
+        // True for the first caller to get within the prefetch threshold of this range's end
+        boolean shouldPrefetch(long lastTaken, long prefetchAt) {
+            return last - lastTaken <= prefetchAt && prefetchRequested.compareAndSet(false, true);
+        }
+    }
+
+    private final class Sequence {
+
+        private final String name;
+        private final DistributedAtomicLong counter;
+        private final long prefetchAt;
+        private final AtomicReference<CompletableFuture<Range>> prefetch = new AtomicReference<>();
+        private final Counter prefetchedRanges;
+        private final Counter blockingRanges;
+        private volatile Range current = EXHAUSTED;
+
+        Sequence(String name) {
+            this.name = name;
+            String path = BASE_PATH + "/" + name;
+            this.counter = new DistributedAtomicLong(client, path, new RetryNTimes(10, 10),
+                    PromotedToLock.builder()
+                            .lockPath(BASE_PATH + "-locks/" + name)
+                            .retryPolicy(new RetryNTimes(3, 100))
+                            .timeout(5, TimeUnit.SECONDS)
+                            .build());
+            this.prefetchAt = Math.max(1, (long) (rangeSize * prefetchThreshold));
+            this.prefetchedRanges = meterRegistry.counter("zk.sequence.ranges", "sequence", name, "fetch", "prefetched");
+            this.blockingRanges = meterRegistry.counter("zk.sequence.ranges", "sequence", name, "fetch", "blocking");
+        }
+
+        long next() {
+            while (true) {
+                Range range = current;
+                long id = range.next.getAndIncrement();
+                if (id <= range.last) {
+                    if (range.shouldPrefetch(id, prefetchAt)) {
+                        prefetch();
+                    }
+                    return id;
+                }
+                advance(range);
+            }
+        }
+
+        long[] next(int count) {
+            long[] ids = new long[count];
+            int filled = 0;
+            while (filled < count) {
+                Range range = current;
+                int wanted = count - filled;
+                long first = range.next.getAndAdd(wanted);
+                if (first > range.last) {
+                    advance(range);
+                    continue;
+                }
+                long last = Math.min(range.last, first + wanted - 1);
+                for (long id = first; id <= last; id++) {
+                    ids[filled++] = id;
+                }
+                if (range.shouldPrefetch(last, prefetchAt)) {
+                    prefetch();
+                }
+            }
+            return ids;
+        }
+
+        // Single flight: the future stays in place until advance() takes it
+        private void prefetch() {
+            CompletableFuture<Range> future = new CompletableFuture<>();
+            if (prefetch.compareAndSet(null, future)) {
+                coordinationExecutor.execute(() -> {
+                    try {
+                        future.complete(reserve());
+                    } catch (Exception e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+            }
+        }
+
+        private synchronized void advance(Range exhausted) {
+            if (current != exhausted) {
+                return;
+            }
+            CompletableFuture<Range> future = prefetch.getAndSet(null);
+            try {
+                if (future != null && !future.isCompletedExceptionally()) {
+                    if (!future.isDone()) {
+                        // Prefetch is already in flight; wait rather than reserving another range
+                        blockingRanges.increment();
+                    } else {
+                        prefetchedRanges.increment();
+                    }
+                    current = future.join();
+                } else {
+                    blockingRanges.increment();
+                    current = reserve();
+                }
+            } catch (CompletionException e) {
+                throw new IllegalStateException("Could not reserve a range for sequence " + name, e.getCause());
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not reserve a range for sequence " + name, e);
+            }
+        }
+
+        private Range reserve() throws Exception {
+            AtomicValue<Long> value = counter.add(rangeSize);
+            if (!value.succeeded()) {
+                throw new IllegalStateException("DistributedAtomicLong.add did not succeed for sequence " + name);
+            }
+            // add() moved the counter from preValue to postValue: this node owns (preValue, postValue]
+            return new Range(value.preValue() + 1, value.postValue());
+        }
+
+        Map<String, Object> getStatus() {
+            Range range = current;
+            Map<String, Object> status = new HashMap<>();
+            status.put("rangeFirst", range.first);
+            status.put("rangeLast", range.last);
+            status.put("remaining", Math.max(0, range.last - range.next.get() + 1));
+            status.put("prefetched", prefetch.get() != null);
+            status.put("rangesPrefetched", (long) prefetchedRanges.count());
+            status.put("rangesFetchedBlocking", (long) blockingRanges.count());
+            return status;
+        }
+    }
+}
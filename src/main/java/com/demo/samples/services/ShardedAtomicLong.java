@@ -0,0 +1,208 @@
+package com.demo.samples.services;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.atomic.AtomicValue;
+import org.apache.curator.framework.recipes.atomic.DistributedAtomicLong;
+import org.apache.curator.retry.RetryNTimes;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter spread over N {@link DistributedAtomicLong} shards under one parent znode.
+ * Increments are buffered in a local {@link LongAdder} and written behind to a single
+ * shard, so concurrent instances rarely race on the same znode.
+ * <p>
+ * The parent is the unsharded counter's own znode; its value is part of the total, so a
+ * counter keeps its value when sharded mode is switched on.
+ */
+public class ShardedAtomicLong {
+
+    private final CuratorFramework client;
+    private final DistributedAtomicLong base;
+    private final List<String> totalPaths = new ArrayList<>();
+    private final DistributedAtomicLong[] shards;
+    private final int homeShard;
+    private final long flushThreshold;
+    private final long cacheTtlMs;
+
+    private final LongAdder pending = new LongAdder();
+    private final AtomicLong pendingOps = new AtomicLong();
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+    private final ScheduledExecutorService flusher;
+
+    private volatile long cachedTotal;
+    private volatile long cachedAt;
+
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+
+    public ShardedAtomicLong(CuratorFramework client, String basePath, int shardCount, String instanceId,
+                             long flushIntervalMs, long flushThreshold, long cacheTtlMs) {
+        this.client = client;
+        this.base = new DistributedAtomicLong(client, basePath, new RetryNTimes(3, 5));
+        this.shards = new DistributedAtomicLong[shardCount];
+        totalPaths.add(basePath);
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new DistributedAtomicLong(client, basePath + "/shard-" + i, new RetryNTimes(3, 5));
+            totalPaths.add(basePath + "/shard-" + i);
+        }
+        this.homeShard = Math.floorMod(instanceId.hashCode(), shardCount);
+        this.flushThreshold = flushThreshold;
+        this.cacheTtlMs = cacheTtlMs;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sharded-counter-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void add(long delta) {
+        pending.add(delta);
+        if (pendingOps.incrementAndGet() >= flushThreshold && !flushing.get()) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    public long getPending() {
+        return pending.sum();
+    }
+
+    /**
+     * Writes the buffered delta to this instance's home shard, falling back to the
+     * other shards when the home shard keeps losing the optimistic race.
+     *
+     * @return the delta that was written
+     */
+    public long flush() throws Exception {
+        if (!flushing.compareAndSet(false, true)) {
+            return 0;
+        }
+        long delta = 0;
+        try {
+            pendingOps.set(0);
+            delta = pending.sumThenReset();
+            if (delta == 0) {
+                return 0;
+            }
+            for (int i = 0; i < shards.length; i++) {
+                DistributedAtomicLong shard = shards[(homeShard + i) % shards.length];
+                AtomicValue<Long> value = shard.add(delta);
+                if (value.succeeded()) {
+                    flushCount.incrementAndGet();
+                    return delta;
+                }
+            }
+            // Every shard was contended; keep the delta for the next flush
+            pending.add(delta);
+            flushFailures.incrementAndGet();
+            return 0;
+        } catch (Exception e) {
+            // Not written (or not known to be); keep the delta for the next flush
+            pending.add(delta);
+            flushFailures.incrementAndGet();
+            throw e;
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    /**
+     * Sums the base znode and the shards in ZooKeeper with one multi read. Buffered local
+     * deltas are not included.
+     */
+    public long getTotal() throws Exception {
+        long total = 0;
+        for (MultiRead.NodeData node : MultiRead.getData(client, totalPaths)) {
+            total += valueOf(node);
+        }
+        cachedTotal = total;
+        cachedAt = System.currentTimeMillis();
+        return total;
+    }
+
+    /**
+     * Serves the last summed total if it is younger than the configured TTL.
+     */
+    public long getCachedTotal() throws Exception {
+        if (System.currentTimeMillis() - cachedAt < cacheTtlMs) {
+            return cachedTotal;
+        }
+        return getTotal();
+    }
+
+    // Encoded by DistributedAtomicLong as 8 bytes; a parent created by the first shard has none
+    static long valueOf(MultiRead.NodeData node) {
+        byte[] data = node.data();
+        return data != null && data.length == Long.BYTES ? ByteBuffer.wrap(data).getLong() : 0;
+    }
+
+    /**
+     * Flushes pending deltas and then forces the base and shards to sum to {@code value}.
+     * This is not atomic across shards: concurrent flushes from other instances may interleave.
+     */
+    public void set(long value) throws Exception {
+        flush();
+        base.forceSet(0L);
+        shards[0].forceSet(value);
+        for (int i = 1; i < shards.length; i++) {
+            shards[i].forceSet(0L);
+        }
+        cachedAt = 0;
+    }
+
+    public String getBasePath() {
+        return totalPaths.get(0);
+    }
+
+    public List<String> getShardPaths() {
+        return totalPaths.subList(1, totalPaths.size());
+    }
+
+    /**
+     * Creates any missing shard at 0, so that all of them can be version-checked.
+     */
+    public void initializeShards() throws Exception {
+        for (DistributedAtomicLong shard : shards) {
+            shard.initialize(0L);
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int getHomeShard() {
+        return homeShard;
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public long getFlushFailures() {
+        return flushFailures.get();
+    }
+
+    public void close() {
+        flusher.shutdown();
+        flushQuietly();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.out.println("Sharded counter flush failed: " + e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.demo.samples.services;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.atomic.AtomicValue;
 import org.apache.curator.framework.recipes.atomic.DistributedAtomicLong;
@@ -8,49 +9,120 @@ import org.apache.curator.framework.recipes.shared.SharedCountListener;
 import org.apache.curator.framework.recipes.shared.SharedCountReader;
 import org.apache.curator.framework.state.ConnectionState;
 import org.apache.curator.retry.RetryNTimes;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class SharedCounterService {
 
     private final CuratorFramework client;
+    private final ExecutorService coordinationExecutor;
+    private final MeterRegistry meterRegistry;
+    private final StatePushService statePushService;
     private SharedCount sharedCount;
     private DistributedAtomicLong distributedAtomicLong;
-    private final List<String> counterEvents = new CopyOnWriteArrayList<>();
+    private ShardedAtomicLong shardedAtomicLong;
+    private EventRingBuffer counterEvents;
+    private ScheduledExecutorService eventStreamer;
+    private ThreadPoolExecutor eventSender;
 
-    public SharedCounterService(CuratorFramework client) {
+    @Value("${counter.events.capacity:4096}")
+    private int eventCapacity;
+
+    @Value("${counter.events.stream-interval-ms:250}")
+    private long streamIntervalMs;
+
+    @Value("${counter.events.stream-threads:8}")
+    private int streamThreads;
+
+    @Value("${counter.events.stream-max-lag-ms:5000}")
+    private long streamMaxLagMs;
+
+    @Value("${counter.atomic.sharded:false}")
+    private boolean sharded;
+
+    @Value("${counter.atomic.shards:16}")
+    private int shardCount;
+
+    @Value("${counter.atomic.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${counter.atomic.flush-threshold:1000}")
+    private long flushThreshold;
+
+    @Value("${counter.atomic.cached-reads:false}")
+    private boolean cachedReads;
+
+    @Value("${counter.atomic.cache-ttl-ms:500}")
+    private long cacheTtlMs;
+
+    public SharedCounterService(CuratorFramework client, ExecutorService coordinationExecutor, MeterRegistry meterRegistry,
+                                StatePushService statePushService) {
         this.client = client;
+        this.coordinationExecutor = coordinationExecutor;
+        this.meterRegistry = meterRegistry;
+        this.statePushService = statePushService;
     }
 
     @PostConstruct
     public void init() throws Exception {
+        // Preallocated, bounded event log; appends never allocate or lock
+        counterEvents = new EventRingBuffer(eventCapacity);
+        eventStreamer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "counter-event-streamer");
+            t.setDaemon(true);
+            return t;
+        });
+        // Sends run here so a slow subscriber only holds up its own stream
+        AtomicInteger senderThreads = new AtomicInteger();
+        eventSender = new ThreadPoolExecutor(0, streamThreads, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, "counter-event-sender-" + senderThreads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
         // Initialize SharedCount
         sharedCount = new SharedCount(client, "/counters/shared-count", 0);
         
-        // Add listener to track changes
+        // Add listener to track changes, off the shared Curator event thread
         sharedCount.addListener(new SharedCountListener() {
             @Override
             public void countHasChanged(SharedCountReader sharedCount, int newCount) throws Exception {
-                String event = "Count changed to: " + newCount + " at " + System.currentTimeMillis();
-                counterEvents.add(event);
-                System.out.println(event);
+                int version = sharedCount.getVersionedValue().getVersion();
+                counterEvents.append(EventRingBuffer.EventType.COUNT_CHANGED, newCount, version);
+
+                Map<String, Object> payload = new HashMap<>();
+                payload.put("count", newCount);
+                payload.put("version", version);
+                statePushService.publish(StatePushService.COUNTER, payload);
             }
 
             @Override
             public void stateChanged(CuratorFramework client, ConnectionState newState) {
-                String event = "Connection state changed to: " + newState;
-                counterEvents.add(event);
-                System.out.println(event);
+                counterEvents.append(EventRingBuffer.EventType.CONNECTION_STATE, newState.ordinal(), -1);
             }
-        });
+        }, coordinationExecutor);
         
         sharedCount.start();
 
@@ -60,6 +132,26 @@ public class SharedCounterService {
                 "/counters/atomic-long",
                 new RetryNTimes(10, 10)
         );
+
+        // Sharded mode spreads increments across /counters/atomic-long/shard-N
+        if (sharded) {
+            shardedAtomicLong = new ShardedAtomicLong(
+                    client,
+                    "/counters/atomic-long",
+                    shardCount,
+                    UUID.randomUUID().toString(),
+                    flushIntervalMs,
+                    flushThreshold,
+                    cacheTtlMs
+            );
+        }
+    }
+
+    /**
+     * The sharded counter behind {@code /counters/atomic-long}, or null when sharded mode is off.
+     */
+    public ShardedAtomicLong getShardedAtomicLong() {
+        return shardedAtomicLong;
     }
 
     // ========== SharedCount Methods ==========
@@ -86,6 +178,7 @@ public class SharedCounterService {
         int currentCount = sharedCount.getCount();
         int newCount = currentCount + 1;
         boolean success = sharedCount.trySetCount(sharedCount.getVersionedValue(), newCount);
+        recordCas("shared-count", success, 1);
         
         result.put("success", success);
         result.put("previousCount", currentCount);
@@ -98,6 +191,14 @@ public class SharedCounterService {
 
     public Map<String, Object> getAtomicLong() throws Exception {
         Map<String, Object> result = new HashMap<>();
+        if (shardedAtomicLong != null) {
+            result.put("succeeded", true);
+            result.put("value", cachedReads ? shardedAtomicLong.getCachedTotal() : shardedAtomicLong.getTotal());
+            result.put("pendingLocalDelta", shardedAtomicLong.getPending());
+            result.put("shards", shardedAtomicLong.getShardCount());
+            result.put("timestamp", System.currentTimeMillis());
+            return result;
+        }
         AtomicValue<Long> value = distributedAtomicLong.get();
         result.put("succeeded", value.succeeded());
         result.put("value", value.postValue());
@@ -107,8 +208,12 @@ public class SharedCounterService {
     }
 
     public Map<String, Object> incrementAtomicLong() throws Exception {
+        if (shardedAtomicLong != null) {
+            return addSharded(1);
+        }
         Map<String, Object> result = new HashMap<>();
         AtomicValue<Long> value = distributedAtomicLong.increment();
+        recordCas(value);
         
         result.put("succeeded", value.succeeded());
         result.put("preValue", value.preValue());
@@ -123,8 +228,12 @@ public class SharedCounterService {
     }
 
     public Map<String, Object> decrementAtomicLong() throws Exception {
+        if (shardedAtomicLong != null) {
+            return addSharded(-1);
+        }
         Map<String, Object> result = new HashMap<>();
         AtomicValue<Long> value = distributedAtomicLong.decrement();
+        recordCas(value);
         
         result.put("succeeded", value.succeeded());
         result.put("preValue", value.preValue());
@@ -139,8 +248,12 @@ public class SharedCounterService {
     }
 
     public Map<String, Object> addAtomicLong(long delta) throws Exception {
+        if (shardedAtomicLong != null) {
+            return addSharded(delta);
+        }
         Map<String, Object> result = new HashMap<>();
         AtomicValue<Long> value = distributedAtomicLong.add(delta);
+        recordCas(value);
         
         result.put("succeeded", value.succeeded());
         result.put("delta", delta);
@@ -157,10 +270,19 @@ public class SharedCounterService {
 
     public Map<String, Object> setAtomicLong(long newValue) throws Exception {
         Map<String, Object> result = new HashMap<>();
+
+        if (shardedAtomicLong != null) {
+            shardedAtomicLong.set(newValue);
+            result.put("succeeded", true);
+            result.put("postValue", newValue);
+            result.put("timestamp", System.currentTimeMillis());
+            return result;
+        }
         
         // Try to set the value using compareAndSet
         AtomicValue<Long> currentValue = distributedAtomicLong.get();
         AtomicValue<Long> setValue = distributedAtomicLong.compareAndSet(currentValue.postValue(), newValue);
+        recordCas(setValue);
         
         result.put("succeeded", setValue.succeeded());
         result.put("preValue", setValue.preValue());
@@ -174,20 +296,126 @@ public class SharedCounterService {
         return result;
     }
 
+    public Map<String, Object> flushAtomicLong() throws Exception {
+        Map<String, Object> result = new HashMap<>();
+        if (shardedAtomicLong == null) {
+            result.put("status", "error");
+            result.put("message", "Sharded counter mode is disabled");
+            return result;
+        }
+        result.put("status", "success");
+        result.put("flushedDelta", shardedAtomicLong.flush());
+        result.put("pendingLocalDelta", shardedAtomicLong.getPending());
+        result.put("flushCount", shardedAtomicLong.getFlushCount());
+        result.put("flushFailures", shardedAtomicLong.getFlushFailures());
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    private void recordCas(AtomicValue<Long> value) {
+        recordCas("atomic-long", value.succeeded(), value.getStats().getOptimisticTries());
+    }
+
+    private void recordCas(String recipe, boolean succeeded, int tries) {
+        meterRegistry.counter("zk.counter.cas", "recipe", recipe, "result", succeeded ? "success" : "failure")
+                .increment();
+        meterRegistry.summary("zk.counter.cas.retries", "recipe", recipe)
+                .record(Math.max(0, tries - 1));
+    }
+
+    private Map<String, Object> addSharded(long delta) {
+        Map<String, Object> result = new HashMap<>();
+        shardedAtomicLong.add(delta);
+        result.put("succeeded", true);
+        result.put("buffered", true);
+        result.put("delta", delta);
+        result.put("homeShard", shardedAtomicLong.getHomeShard());
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
     // ========== Event Tracking ==========
 
-    public Map<String, Object> getCounterEvents() {
+    public Map<String, Object> getCounterEvents(long cursor, int limit) {
         Map<String, Object> result = new HashMap<>();
-        result.put("events", new ArrayList<>(counterEvents));
+        EventRingBuffer.Page page = counterEvents.read(cursor, limit);
+        result.put("events", toMaps(page.events()));
+        result.put("nextCursor", page.nextCursor());
+        result.put("missed", page.missed());
         result.put("count", counterEvents.size());
+        result.put("capacity", counterEvents.capacity());
         result.put("timestamp", System.currentTimeMillis());
         return result;
     }
 
+    /**
+     * Streams counter events as Server-Sent Events, tailing the ring buffer from {@code cursor}
+     * (or from the current head when null).
+     */
+    public SseEmitter streamCounterEvents(Long cursor) {
+        SseEmitter emitter = new SseEmitter(0L);
+        AtomicLong position = new AtomicLong(cursor != null ? cursor : counterEvents.head());
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+        // Start time of the send in progress, or 0 when idle
+        AtomicLong sendingSince = new AtomicLong();
+        task.set(eventStreamer.scheduleWithFixedDelay(() -> {
+            long now = System.currentTimeMillis();
+            long since = sendingSince.get();
+            if (since != 0) {
+                if (now - since > streamMaxLagMs) {
+                    // Subscriber is not reading; drop it instead of holding a sender thread
+                    task.get().cancel(false);
+                    emitter.complete();
+                }
+                return;
+            }
+            sendingSince.set(now);
+            try {
+                eventSender.execute(() -> {
+                    EventRingBuffer.Page page = counterEvents.read(position.get(), 256);
+                    try {
+                        for (Map<String, Object> event : toMaps(page.events())) {
+                            emitter.send(SseEmitter.event().id(String.valueOf(event.get("sequence"))).name("counter").data(event));
+                        }
+                        position.set(page.nextCursor());
+                    } catch (IOException | IllegalStateException e) {
+                        task.get().cancel(false);
+                    } finally {
+                        sendingSince.set(0);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // All sender threads busy; try again on the next tick
+                sendingSince.set(0);
+            }
+        }, streamIntervalMs, streamIntervalMs, TimeUnit.MILLISECONDS));
+        emitter.onCompletion(() -> task.get().cancel(false));
+        emitter.onTimeout(() -> task.get().cancel(false));
+        emitter.onError(e -> task.get().cancel(false));
+        return emitter;
+    }
+
+    private List<Map<String, Object>> toMaps(List<EventRingBuffer.Event> events) {
+        List<Map<String, Object>> maps = new ArrayList<>(events.size());
+        for (EventRingBuffer.Event event : events) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("sequence", event.sequence());
+            map.put("type", event.type());
+            map.put("nanoTime", event.nanoTime());
+            if (event.type() == EventRingBuffer.EventType.CONNECTION_STATE) {
+                map.put("state", ConnectionState.values()[(int) event.value()]);
+            } else {
+                map.put("value", event.value());
+                map.put("version", event.version());
+            }
+            maps.add(map);
+        }
+        return maps;
+    }
+
     public Map<String, Object> clearCounterEvents() {
         Map<String, Object> result = new HashMap<>();
-        int count = counterEvents.size();
-        counterEvents.clear();
+        long count = counterEvents.clear();
         result.put("status", "success");
         result.put("message", "Cleared " + count + " events");
         result.put("timestamp", System.currentTimeMillis());
@@ -199,5 +427,14 @@ public class SharedCounterService {
         if (sharedCount != null) {
             sharedCount.close();
         }
+        if (shardedAtomicLong != null) {
+            shardedAtomicLong.close();
+        }
+        if (eventStreamer != null) {
+            eventStreamer.shutdownNow();
+        }
+        if (eventSender != null) {
+            eventSender.shutdownNow();
+        }
     }
 }
@@ -0,0 +1,269 @@
+package com.demo.samples.services;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans out leader, counter and barrier state changes to any number of SSE subscribers.
+ * <p>
+ * Each znode is watched once per JVM, however many clients subscribe. Updates are
+ * coalesced per subscriber: only the latest value per topic and source is kept (the
+ * leader topic has one source per recipe), and at most one send per subscriber is in
+ * flight, so a slow client sees fewer, newer updates and never grows an unbounded queue.
+ * Sends run on a bounded pool, and a subscriber whose send stalls for longer than
+ * {@code push.max-lag-ms} is disconnected.
+ */
+@Service
+public class StatePushService {
+
+    public static final String LEADER = "leader";
+    public static final String COUNTER = "counter";
+    public static final String BARRIER = "barrier";
+    public static final Set<String> TOPICS = Set.of(LEADER, COUNTER, BARRIER);
+
+    private static final String LEADER_PATH = "/leader/job-manager";
+    private static final String BARRIER_PATH = "/barriers/simple-barrier";
+
+    private final CuratorFramework client;
+    private final Map<String, Map<String, Object>> latest = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+    private ThreadPoolExecutor sender;
+    private CuratorCache leaderCache;
+    private CuratorCache barrierCache;
+
+    @Value("${push.coalesce-ms:100}")
+    private long coalesceMs;
+
+    @Value("${push.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${push.sender-threads:8}")
+    private int senderThreads;
+
+    @Value("${push.max-lag-ms:5000}")
+    private long maxLagMs;
+
+    public StatePushService(CuratorFramework client) {
+        this.client = client;
+    }
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "state-push-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger threadCount = new AtomicInteger();
+        sender = new ThreadPoolExecutor(0, senderThreads, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, "state-push-sender-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        leaderCache = CuratorCache.build(client, LEADER_PATH, CuratorCache.Options.SINGLE_NODE_CACHE);
+        leaderCache.listenable().addListener(CuratorCacheListener.builder()
+                .forCreatesAndChanges((oldNode, node) -> publishLeaderNode(node))
+                .forDeletes(node -> publishLeaderNode(null))
+                .build());
+        leaderCache.start();
+
+        barrierCache = CuratorCache.build(client, BARRIER_PATH, CuratorCache.Options.SINGLE_NODE_CACHE);
+        barrierCache.listenable().addListener(CuratorCacheListener.builder()
+                .forCreates(node -> publishBarrier(true))
+                .forDeletes(node -> publishBarrier(false))
+                .build());
+        barrierCache.start();
+    }
+
+    private void publishLeaderNode(ChildData node) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("leader", node != null && node.getData() != null ? new String(node.getData()) : null);
+        publish(LEADER, "job-manager", payload);
+    }
+
+    private void publishBarrier(boolean set) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("barrierSet", set);
+        publish(BARRIER, payload);
+    }
+
+    /**
+     * Records the new state of {@code topic} and schedules delivery to its subscribers.
+     */
+    public void publish(String topic, Map<String, Object> payload) {
+        publish(topic, null, payload);
+    }
+
+    /**
+     * Records the new state that {@code source} reports on {@code topic}. Updates are only
+     * coalesced with earlier ones from the same source.
+     */
+    public void publish(String topic, String source, Map<String, Object> payload) {
+        payload.put("topic", topic);
+        if (source != null) {
+            payload.put("source", source);
+        }
+        payload.put("timestamp", System.currentTimeMillis());
+        String key = source != null ? topic + "/" + source : topic;
+        latest.put(key, payload);
+        published.incrementAndGet();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.topics.contains(topic)) {
+                if (isLagging(subscriber)) {
+                    drop(subscriber);
+                    continue;
+                }
+                if (subscriber.pending.put(key, payload) != null) {
+                    coalesced.incrementAndGet();
+                }
+                scheduleDrain(subscriber);
+            }
+        }
+    }
+
+    private boolean isLagging(Subscriber subscriber) {
+        long since = subscriber.sendingSince;
+        return since != 0 && System.currentTimeMillis() - since > maxLagMs;
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            dropped.incrementAndGet();
+            subscriber.emitter.complete();
+        }
+    }
+
+    public SseEmitter subscribe(Set<String> topics) {
+        SseEmitter emitter = new SseEmitter(0L);
+        if (subscribers.size() >= maxSubscribers) {
+            emitter.completeWithError(new IllegalStateException("Too many subscribers"));
+            return emitter;
+        }
+        Subscriber subscriber = new Subscriber(emitter, topics);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        // Start every subscriber with the current state of its topics
+        for (Map.Entry<String, Map<String, Object>> entry : latest.entrySet()) {
+            if (topics.contains(entry.getValue().get("topic"))) {
+                subscriber.pending.put(entry.getKey(), entry.getValue());
+            }
+        }
+        scheduleDrain(subscriber);
+        return emitter;
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.pending.isEmpty() || !subscriber.sending.compareAndSet(false, true)) {
+            return;
+        }
+        scheduler.schedule(() -> submitDrain(subscriber), coalesceMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void submitDrain(Subscriber subscriber) {
+        try {
+            sender.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // Every sender thread is busy; keep the updates pending and try again later
+            scheduler.schedule(() -> submitDrain(subscriber), coalesceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        subscriber.sendingSince = System.currentTimeMillis();
+        try {
+            Iterator<Map.Entry<String, Map<String, Object>>> entries = subscriber.pending.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Map<String, Object>> entry = entries.next();
+                entries.remove();
+                Map<String, Object> payload = entry.getValue();
+                subscriber.emitter.send(SseEmitter.event().name((String) payload.get("topic")).data(payload));
+                sent.incrementAndGet();
+            }
+        } catch (Exception e) {
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return;
+        } finally {
+            subscriber.sendingSince = 0;
+            subscriber.sending.set(false);
+        }
+        // Updates that arrived while sending
+        scheduleDrain(subscriber);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("subscribers", subscribers.size());
+        status.put("published", published.get());
+        status.put("sent", sent.get());
+        status.put("coalesced", coalesced.get());
+        status.put("dropped", dropped.get());
+        status.put("coalesceMs", coalesceMs);
+        status.put("latest", new HashMap<>(latest));
+        return status;
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        if (leaderCache != null) {
+            leaderCache.close();
+        }
+        if (barrierCache != null) {
+            barrierCache.close();
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (sender != null) {
+            sender.shutdownNow();
+        }
+    }
+
+    private static class Subscriber {
+        final SseEmitter emitter;
+        final Set<String> topics;
+        final Map<String, Map<String, Object>> pending = new ConcurrentHashMap<>();
+        final AtomicBoolean sending = new AtomicBoolean(false);
+        // Start time of the send in progress, or 0 when idle
+        volatile long sendingSince;
+
+        Subscriber(SseEmitter emitter, Set<String> topics) {
+            this.emitter = emitter;
+            this.topics = topics;
+        }
+    }
+}
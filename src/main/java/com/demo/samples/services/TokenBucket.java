@@ -0,0 +1,78 @@
+package com.demo.samples.services;
+
+import java.nio.ByteBuffer;
+
+/**
+ * State of a token bucket as stored in its znode: the tokens left and when they were last
+ * topped up.
+ * <p>
+ * Tokens are kept in thousandths so that refilling for a whole number of milliseconds at a
+ * rate given in permits per second never rounds: {@code elapsedMs * permitsPerSecond} is
+ * exactly the number of milli-tokens earned. Instances are immutable; every operation
+ * returns the new state to write back.
+ */
+public record TokenBucket(long milliTokens, long lastRefillMs) {
+
+    private static final int ENCODED_LENGTH = 2 * Long.BYTES;
+
+    public static TokenBucket full(long burst, long nowMs) {
+        return new TokenBucket(burst * 1000, nowMs);
+    }
+
+    /**
+     * Adds the tokens earned since the last refill, capped at {@code burst}. A clock that
+     * is behind the last writer's earns nothing rather than taking tokens away.
+     */
+    public TokenBucket refill(long nowMs, long permitsPerSecond, long burst) {
+        if (nowMs <= lastRefillMs) {
+            return this;
+        }
+        long earned = (nowMs - lastRefillMs) * permitsPerSecond;
+        long capacity = burst * 1000;
+        return new TokenBucket(earned >= capacity - milliTokens ? capacity : milliTokens + earned, nowMs);
+    }
+
+    /**
+     * Whole tokens available.
+     */
+    public long available() {
+        return milliTokens / 1000;
+    }
+
+    public TokenBucket take(long tokens) {
+        if (tokens > available()) {
+            throw new IllegalArgumentException("Only " + available() + " tokens available, asked for " + tokens);
+        }
+        return new TokenBucket(milliTokens - tokens * 1000, lastRefillMs);
+    }
+
+    /**
+     * Returns unused tokens, never above {@code burst}.
+     */
+    public TokenBucket giveBack(long tokens, long burst) {
+        return new TokenBucket(Math.min(burst * 1000, milliTokens + tokens * 1000), lastRefillMs);
+    }
+
+    /**
+     * Milliseconds until at least one whole token is available at the given rate.
+     */
+    public long millisUntilToken(long permitsPerSecond) {
+        long missing = 1000 - milliTokens;
+        if (missing <= 0) {
+            return 0;
+        }
+        return permitsPerSecond <= 0 ? Long.MAX_VALUE : (missing + permitsPerSecond - 1) / permitsPerSecond;
+    }
+
+    public byte[] encode() {
+        return ByteBuffer.allocate(ENCODED_LENGTH).putLong(milliTokens).putLong(lastRefillMs).array();
+    }
+
+    public static TokenBucket decode(byte[] data) {
+        if (data == null || data.length != ENCODED_LENGTH) {
+            throw new IllegalArgumentException("Not a token bucket: " + (data == null ? "null" : data.length + " bytes"));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        return new TokenBucket(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,282 @@
+package com.demo.samples.services;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A rendezvous for {@code memberQty} members arranged as a combining tree of fan-in
+ * {@code fanIn}, so that no znode is watched or listed by more than {@code fanIn} members.
+ * <p>
+ * Callers name the round they enter, so each phase of a job uses its own round number. A member
+ * takes its index from the version of {@code <path>/<round>} (an unconditional
+ * {@code setData}); nobody watches that node, so taking a ticket wakes no one. Members are
+ * grouped by {@code fanIn} at each level. The member at position 0 of a group is its leader: it
+ * waits for the other members' arrival nodes under {@code <path>/<round>/<level>-<group>} and
+ * then arrives one level up. Everyone else creates an ephemeral arrival node and sets one data
+ * watch on the group node. The leader releases the group by writing {@link #RELEASED} to it,
+ * the root first and then each leader for the groups it led on the way down. Deleting the
+ * group node also fires that watch: the root removes a round only once it is done, so that
+ * counts as released, unless the whole barrier was reset.
+ * <p>
+ * That is a constant number of operations per member and {@code log(memberQty)} levels in each
+ * direction, instead of every member of a {@code DistributedDoubleBarrier} listing one parent
+ * on every arrival. A member that times out deletes its arrival node and its watch, and one
+ * that crashes loses the node with its session, so a failed round is not counted as complete
+ * and later rounds are not affected. The root marks its round done and removes earlier rounds
+ * that are done.
+ */
+public class TreeBarrier {
+
+    static final byte[] RELEASED = "released".getBytes(StandardCharsets.UTF_8);
+
+    private final CuratorFramework client;
+    private final String path;
+    private final int memberQty;
+    private final int fanIn;
+    private volatile boolean prepared;
+
+    public TreeBarrier(CuratorFramework client, String path, int memberQty, int fanIn) {
+        if (memberQty < 1) {
+            throw new IllegalArgumentException("memberQty must be at least 1");
+        }
+        if (fanIn < 2) {
+            throw new IllegalArgumentException("fanIn must be at least 2");
+        }
+        this.client = client;
+        this.path = path;
+        this.memberQty = memberQty;
+        this.fanIn = fanIn;
+    }
+
+    public int getMemberQty() {
+        return memberQty;
+    }
+
+    public int getFanIn() {
+        return fanIn;
+    }
+
+    /**
+     * Outcome of one {@link #enter}: the round and member index taken, how many levels this
+     * member led and whether the round was released within the timeout.
+     */
+    public record Arrival(long round, int member, int levelsLed, boolean released) {
+    }
+
+    /**
+     * Enters {@code round}, which must not have been completed before: once a round is done and
+     * removed, entering it again starts it over.
+     *
+     * @throws IllegalStateException if the round already has {@code memberQty} members, or the
+     *                               barrier node is configured differently
+     */
+    public Arrival enter(long round, long timeout, TimeUnit unit) throws Exception {
+        if (round < 0) {
+            throw new IllegalArgumentException("round must not be negative");
+        }
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        prepare();
+
+        String roundPath = path + "/" + round;
+        createRound(roundPath);
+        Stat ticket = client.setData().forPath(roundPath);
+        int member = ticket.getVersion() - 1;
+        if (member >= memberQty) {
+            throw new IllegalStateException("Round " + round + " of tree barrier " + path + " already has "
+                    + memberQty + " members");
+        }
+
+        // Climb while this member leads its group
+        int level = 0;
+        int position = member;
+        while (width(memberQty, fanIn, level) > 1 && position % fanIn == 0) {
+            String groupPath = roundPath + "/" + level + "-" + position / fanIn;
+            int others = groupSize(memberQty, fanIn, level, position / fanIn) - 1;
+            if (!awaitChildren(groupPath, others, deadline)) {
+                return new Arrival(round, member, level, false);
+            }
+            level++;
+            position /= fanIn;
+        }
+        int levelsLed = level;
+
+        if (width(memberQty, fanIn, level) > 1) {
+            // Arrive at the parent group and wait for its release
+            String groupPath = roundPath + "/" + level + "-" + position / fanIn;
+            String arrivalPath = groupPath + "/" + position;
+            client.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL).forPath(arrivalPath);
+            if (!awaitRelease(groupPath, deadline)) {
+                // Withdraw, so the leader does not count a member that has given up
+                client.delete().quietly().forPath(arrivalPath);
+                return new Arrival(round, member, levelsLed, false);
+            }
+        }
+
+        // Release the groups this member led, top down
+        for (int l = levelsLed - 1; l >= 0; l--) {
+            try {
+                client.setData().forPath(roundPath + "/" + l + "-" + (member / pow(fanIn, l)) / fanIn, RELEASED);
+            } catch (KeeperException.NoNodeException e) {
+                // The round is gone because a later one completed, which released its members
+            }
+        }
+        if (width(memberQty, fanIn, levelsLed) == 1) {
+            // Root, after releasing
+            createIfMissing(roundPath + "/done");
+            removeDoneRounds(round);
+        }
+        return new Arrival(round, member, levelsLed, true);
+    }
+
+    // Members still leaving a done round treat its removal as the release
+    private void removeDoneRounds(long current) throws Exception {
+        for (String child : client.getChildren().forPath(path)) {
+            String roundPath = path + "/" + child;
+            if (child.equals(String.valueOf(current)) || client.checkExists().forPath(roundPath + "/done") == null) {
+                continue;
+            }
+            try {
+                client.delete().deletingChildrenIfNeeded().forPath(roundPath);
+            } catch (KeeperException.NoNodeException e) {
+                // Removed by another root
+            }
+        }
+    }
+
+    /**
+     * Number of positions at {@code level}: {@code memberQty} at level 0, then one per group of
+     * the level below.
+     */
+    static int width(int memberQty, int fanIn, int level) {
+        int width = memberQty;
+        for (int l = 0; l < level; l++) {
+            width = (width + fanIn - 1) / fanIn;
+        }
+        return width;
+    }
+
+    /**
+     * Members of group {@code group} at {@code level}, including its leader; only the last group
+     * of a level can be short.
+     */
+    static int groupSize(int memberQty, int fanIn, int level, int group) {
+        return Math.min(fanIn, width(memberQty, fanIn, level) - group * fanIn);
+    }
+
+    /**
+     * Levels between a member and the root.
+     */
+    static int depth(int memberQty, int fanIn) {
+        int depth = 0;
+        while (width(memberQty, fanIn, depth) > 1) {
+            depth++;
+        }
+        return depth;
+    }
+
+    private static int pow(int base, int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+
+    // Creates the barrier node holding memberQty/fanIn, or checks it against ours
+    private void prepare() throws Exception {
+        if (prepared) {
+            return;
+        }
+        String config = memberQty + "," + fanIn;
+        try {
+            client.create().creatingParentContainersIfNeeded().forPath(path, config.getBytes(StandardCharsets.UTF_8));
+        } catch (KeeperException.NodeExistsException e) {
+            String existing = new String(client.getData().forPath(path), StandardCharsets.UTF_8);
+            if (!existing.equals(config)) {
+                throw new IllegalStateException("Tree barrier " + path + " is configured as memberQty,fanIn=" + existing
+                        + ", not " + config);
+            }
+        }
+        prepared = true;
+    }
+
+    // Without creating parents, so a barrier reset since prepare() is configured again
+    private void createRound(String roundPath) throws Exception {
+        try {
+            client.create().forPath(roundPath);
+        } catch (KeeperException.NodeExistsException e) {
+            // Entered by another member
+        } catch (KeeperException.NoNodeException e) {
+            prepared = false;
+            prepare();
+            createIfMissing(roundPath);
+        }
+    }
+
+    private void createIfMissing(String node) throws Exception {
+        try {
+            client.create().creatingParentsIfNeeded().forPath(node);
+        } catch (KeeperException.NodeExistsException e) {
+            // Created by another member
+        }
+    }
+
+    private boolean awaitChildren(String groupPath, int expected, long deadline) throws Exception {
+        if (expected == 0) {
+            return true;
+        }
+        createIfMissing(groupPath);
+        while (true) {
+            CountDownLatch changed = new CountDownLatch(1);
+            List<String> children = client.getChildren()
+                    .usingWatcher((CuratorWatcher) event -> changed.countDown())
+                    .forPath(groupPath);
+            if (children.size() >= expected) {
+                return true;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0 || !changed.await(remaining, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Waits on one data watch of the group node. Only its leader writes it, with
+     * {@link #RELEASED}, and the node is only deleted with its round once the round is done, so
+     * either event ends the wait. Both mean released unless the whole barrier was reset.
+     */
+    private boolean awaitRelease(String groupPath, long deadline) throws Exception {
+        CountDownLatch changed = new CountDownLatch(1);
+        // Connection events leave the watch registered, so only node events end the wait
+        CuratorWatcher watcher = event -> {
+            if (event.getType() != Watcher.Event.EventType.None) {
+                changed.countDown();
+            }
+        };
+        try {
+            byte[] data = client.getData().usingWatcher(watcher).forPath(groupPath);
+            if (Arrays.equals(data, RELEASED)) {
+                return true;
+            }
+        } catch (KeeperException.NoNodeException e) {
+            return client.checkExists().forPath(path) != null;
+        }
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0 || !changed.await(remaining, TimeUnit.MILLISECONDS)) {
+            client.watchers().remove(watcher).ofType(Watcher.WatcherType.Data).quietly().inBackground().forPath(groupPath);
+            return false;
+        }
+        return client.checkExists().forPath(path) != null;
+    }
+}
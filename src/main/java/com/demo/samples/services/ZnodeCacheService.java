@@ -0,0 +1,204 @@
+package com.demo.samples.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Local, watch-maintained copy of selected subtrees ({@code zk.cache.paths}).
+ * <p>
+ * Reads are served from memory while the cache is initialized and the session is
+ * connected, or has been disconnected for less than {@code zk.cache.max-staleness-ms}.
+ * Otherwise, and for paths outside the cached subtrees, reads go to ZooKeeper.
+ * A consistent read runs {@code sync()} first and then reads from ZooKeeper, which
+ * gives a linearizable result at the cost of two round-trips.
+ */
+@Service
+public class ZnodeCacheService {
+
+    private final CuratorFramework client;
+    private final Map<String, CachedRoot> roots = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private volatile long disconnectedSince = -1;
+    private ConnectionStateListener connectionListener;
+
+    @Value("${zk.cache.paths:/leader,/counters,/barriers}")
+    private List<String> cachedPaths;
+
+    @Value("${zk.cache.max-staleness-ms:5000}")
+    private long maxStalenessMs;
+
+    @Value("${zk.cache.sync-timeout-ms:5000}")
+    private long syncTimeoutMs;
+
+    public ZnodeCacheService(CuratorFramework client, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.hits = meterRegistry.counter("zk.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("zk.cache.requests", "result", "miss");
+    }
+
+    @PostConstruct
+    public void init() {
+        connectionListener = (c, newState) -> {
+            if (newState == ConnectionState.SUSPENDED || newState == ConnectionState.LOST) {
+                if (disconnectedSince < 0) {
+                    disconnectedSince = System.currentTimeMillis();
+                }
+            } else if (newState.isConnected()) {
+                disconnectedSince = -1;
+            }
+        };
+        client.getConnectionStateListenable().addListener(connectionListener);
+
+        for (String path : cachedPaths) {
+            CachedRoot root = new CachedRoot(client, path.trim());
+            roots.put(root.path, root);
+            root.start();
+        }
+    }
+
+    /**
+     * Returns the node's data and stat, or empty if the node does not exist.
+     *
+     * @param consistent sync with the leader and read from ZooKeeper instead of the cache
+     */
+    public Optional<ChildData> getData(String path, boolean consistent) throws Exception {
+        CachedRoot root = consistent ? null : usableRootFor(path);
+        if (root != null) {
+            hits.increment();
+            return root.cache.get(path);
+        }
+        misses.increment();
+        if (consistent) {
+            sync(path);
+        }
+        try {
+            Stat stat = new Stat();
+            byte[] data = client.getData().storingStatIn(stat).forPath(path);
+            return Optional.of(new ChildData(path, stat, data));
+        } catch (KeeperException.NoNodeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the child names of {@code path}, empty if the node does not exist.
+     */
+    public List<String> getChildren(String path, boolean consistent) throws Exception {
+        CachedRoot root = consistent ? null : usableRootFor(path);
+        if (root != null) {
+            hits.increment();
+            Set<String> children = root.children.get(path);
+            return children != null ? new ArrayList<>(children) : new ArrayList<>();
+        }
+        misses.increment();
+        if (consistent) {
+            sync(path);
+        }
+        try {
+            return client.getChildren().forPath(path);
+        } catch (KeeperException.NoNodeException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    private CachedRoot usableRootFor(String path) {
+        long since = disconnectedSince;
+        if (since >= 0 && System.currentTimeMillis() - since > maxStalenessMs) {
+            return null;
+        }
+        for (CachedRoot root : roots.values()) {
+            if (root.initialized.get() && (path.equals(root.path) || path.startsWith(root.path + "/"))) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    private void sync(String path) throws Exception {
+        CountDownLatch synced = new CountDownLatch(1);
+        client.sync().inBackground((c, event) -> synced.countDown()).forPath(path);
+        if (!synced.await(syncTimeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("sync() timed out for " + path);
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        Map<String, Object> rootStatus = new HashMap<>();
+        for (CachedRoot root : roots.values()) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("initialized", root.initialized.get());
+            entry.put("nodes", root.cache.size());
+            rootStatus.put(root.path, entry);
+        }
+        status.put("roots", rootStatus);
+        status.put("hits", (long) hits.count());
+        status.put("misses", (long) misses.count());
+        status.put("maxStalenessMs", maxStalenessMs);
+        status.put("connected", disconnectedSince < 0);
+        return status;
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        if (connectionListener != null) {
+            client.getConnectionStateListenable().removeListener(connectionListener);
+        }
+        roots.values().forEach(root -> root.cache.close());
+    }
+
+    private static class CachedRoot {
+        final String path;
+        final CuratorCache cache;
+        final Map<String, Set<String>> children = new ConcurrentHashMap<>();
+        final AtomicBoolean initialized = new AtomicBoolean(false);
+
+        CachedRoot(CuratorFramework client, String path) {
+            this.path = path;
+            this.cache = CuratorCache.build(client, path);
+        }
+
+        void start() {
+            // Keep a parent -> children index so child listings are O(children), not O(cache)
+            cache.listenable().addListener(CuratorCacheListener.builder()
+                    .forCreates(node -> childrenOf(node.getPath()).add(ZKPaths.getNodeFromPath(node.getPath())))
+                    .forDeletes(node -> {
+                        childrenOf(node.getPath()).remove(ZKPaths.getNodeFromPath(node.getPath()));
+                        children.remove(node.getPath());
+                    })
+                    .forInitialized(() -> initialized.set(true))
+                    .build());
+            cache.start();
+        }
+
+        private Set<String> childrenOf(String nodePath) {
+            String parent = ZKPaths.getPathAndNode(nodePath).getPath();
+            return children.computeIfAbsent(parent, key -> ConcurrentHashMap.newKeySet());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.demo.samples.services;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks for user-supplied names (groups, counters, sequences) that become one segment of
+ * a znode path.
+ */
+final class ZnodeNames {
+
+    private ZnodeNames() {
+    }
+
+    /**
+     * Error message for a name that is not a single path segment or is one of
+     * {@code reserved}, or null if the name is usable.
+     */
+    static String check(String kind, String name, Set<String> reserved) {
+        if (name == null || name.isEmpty() || name.contains("/") || name.equals(".") || name.equals("..")) {
+            return "Invalid " + kind + " name: " + name;
+        }
+        if (reserved.contains(name)) {
+            return capitalize(kind) + " name " + name + " is reserved";
+        }
+        return null;
+    }
+
+    /**
+     * Same as {@link #check}, as an error result map.
+     */
+    static Map<String, Object> validate(String kind, String name, Set<String> reserved) {
+        String message = check(kind, name, reserved);
+        if (message == null) {
+            return null;
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("status", "error");
+        result.put("message", message);
+        return result;
+    }
+
+    private static String capitalize(String kind) {
+        return Character.toUpperCase(kind.charAt(0)) + kind.substring(1);
+    }
+}
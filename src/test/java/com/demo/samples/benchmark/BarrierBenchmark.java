@@ -0,0 +1,46 @@
+package com.demo.samples.benchmark;
+
+import org.apache.curator.framework.recipes.barriers.DistributedBarrier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DistributedBarrier set/wait/remove as used by BarrierService.
+ * Each thread uses its own barrier path so a wait never blocks on another thread's barrier.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BarrierBenchmark {
+
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Barrier {
+        DistributedBarrier barrier;
+
+        @Setup
+        public void setup(ZooKeeperEnsemble ensemble) {
+            barrier = new DistributedBarrier(ensemble.client(), "/bench/barriers/barrier-" + THREAD_IDS.incrementAndGet());
+        }
+    }
+
+    @Benchmark
+    public void setWaitRemove(Barrier state) throws Exception {
+        state.barrier.setBarrier();
+        state.barrier.removeBarrier();
+        state.barrier.waitOnBarrier(1, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public boolean waitOnClearedBarrier(Barrier state) throws Exception {
+        return state.barrier.waitOnBarrier(1, TimeUnit.SECONDS);
+    }
+}
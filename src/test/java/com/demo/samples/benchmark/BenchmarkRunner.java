@@ -0,0 +1,39 @@
+package com.demo.samples.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the recipe benchmarks once per thread count. JMH cannot vary the thread count
+ * through {@code @Param}, so each count is a separate run with its own JSON result file.
+ * <p>
+ * System properties: {@code benchmark.include} (regex), {@code benchmark.threads}
+ * and {@code benchmark.ensemble} (comma separated).
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        String include = System.getProperty("benchmark.include", ".*Benchmark.*");
+        String[] threadCounts = System.getProperty("benchmark.threads", "1,4,16").split(",");
+        String[] ensembleSizes = System.getProperty("benchmark.ensemble", "1,3").split(",");
+
+        for (String threads : threadCounts) {
+            int t = Integer.parseInt(threads.trim());
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include("com\\.demo\\.samples\\.benchmark\\." + include)
+                    .param("ensembleSize", ensembleSizes)
+                    .threads(t)
+                    .forks(1)
+                    .warmupIterations(2)
+                    .warmupTime(TimeValue.seconds(5))
+                    .measurementIterations(3)
+                    .measurementTime(TimeValue.seconds(10))
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("target/jmh-results-threads-" + t + ".json");
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.demo.samples.benchmark;
+
+import org.apache.curator.framework.recipes.atomic.AtomicValue;
+import org.apache.curator.framework.recipes.atomic.DistributedAtomicLong;
+import org.apache.curator.framework.recipes.shared.SharedCount;
+import org.apache.curator.framework.recipes.shared.VersionedValue;
+import org.apache.curator.retry.RetryNTimes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DistributedAtomicLong and SharedCount as used by SharedCounterService.
+ * All threads share one counter, so increments and trySet run under contention.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CounterBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Counters {
+        DistributedAtomicLong atomicLong;
+        SharedCount sharedCount;
+
+        @Setup
+        public void setup(ZooKeeperEnsemble ensemble) throws Exception {
+            atomicLong = new DistributedAtomicLong(ensemble.client(), "/bench/counters/atomic-long", new RetryNTimes(10, 10));
+            sharedCount = new SharedCount(ensemble.client(), "/bench/counters/shared-count", 0);
+            sharedCount.start();
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            sharedCount.close();
+        }
+    }
+
+    @Benchmark
+    public boolean atomicLongIncrement(Counters counters) throws Exception {
+        AtomicValue<Long> value = counters.atomicLong.increment();
+        return value.succeeded();
+    }
+
+    @Benchmark
+    public int sharedCountRead(Counters counters) {
+        return counters.sharedCount.getCount();
+    }
+
+    @Benchmark
+    public boolean sharedCountTrySet(Counters counters) throws Exception {
+        VersionedValue<Integer> current = counters.sharedCount.getVersionedValue();
+        return counters.sharedCount.trySetCount(current, current.getValue() + 1);
+    }
+}
@@ -0,0 +1,59 @@
+package com.demo.samples.benchmark;
+
+import org.apache.curator.x.discovery.ServiceDiscovery;
+import org.apache.curator.x.discovery.ServiceDiscoveryBuilder;
+import org.apache.curator.x.discovery.ServiceInstance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ServiceDiscovery.queryForInstances("order-service") as called by GET /zk-test/services.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DiscoveryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Discovery {
+        @Param({"10", "100"})
+        public int instances;
+
+        ServiceDiscovery<Void> serviceDiscovery;
+
+        @Setup
+        public void setup(ZooKeeperEnsemble ensemble) throws Exception {
+            serviceDiscovery = ServiceDiscoveryBuilder.builder(Void.class)
+                    .client(ensemble.client())
+                    .basePath("/bench/services")
+                    .build();
+            serviceDiscovery.start();
+            for (int i = 0; i < instances; i++) {
+                serviceDiscovery.registerService(ServiceInstance.<Void>builder()
+                        .name("order-service")
+                        .address("localhost")
+                        .port(9000 + i)
+                        .build());
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            serviceDiscovery.close();
+        }
+    }
+
+    @Benchmark
+    public Collection<ServiceInstance<Void>> queryForInstances(Discovery discovery) throws Exception {
+        return discovery.serviceDiscovery.queryForInstances("order-service");
+    }
+}
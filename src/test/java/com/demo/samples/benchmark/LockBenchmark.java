@@ -0,0 +1,52 @@
+package com.demo.samples.benchmark;
+
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acquire/release of the lock recipes used by DistributedLockService and ReadWriteLockService.
+ * Every thread has its own lock instance on the same path, so threads contend in ZooKeeper.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LockBenchmark {
+
+    @State(Scope.Thread)
+    public static class Locks {
+        InterProcessMutex mutex;
+        InterProcessReadWriteLock readWriteLock;
+
+        @Setup
+        public void setup(ZooKeeperEnsemble ensemble) {
+            mutex = new InterProcessMutex(ensemble.client(), "/bench/locks/mutex");
+            readWriteLock = new InterProcessReadWriteLock(ensemble.client(), "/bench/locks/rw");
+        }
+    }
+
+    @Benchmark
+    public void mutexAcquireRelease(Locks locks) throws Exception {
+        locks.mutex.acquire();
+        locks.mutex.release();
+    }
+
+    @Benchmark
+    public void readLockAcquireRelease(Locks locks) throws Exception {
+        locks.readWriteLock.readLock().acquire();
+        locks.readWriteLock.readLock().release();
+    }
+
+    @Benchmark
+    public void writeLockAcquireRelease(Locks locks) throws Exception {
+        locks.readWriteLock.writeLock().acquire();
+        locks.readWriteLock.writeLock().release();
+    }
+}
@@ -0,0 +1,56 @@
+package com.demo.samples.benchmark;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingCluster;
+import org.apache.curator.test.TestingServer;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.Closeable;
+
+/**
+ * Embedded in-process ZooKeeper shared by all benchmark threads of a trial:
+ * a {@link TestingServer} for an ensemble size of 1, a {@link TestingCluster} otherwise.
+ */
+@State(Scope.Benchmark)
+public class ZooKeeperEnsemble {
+
+    @Param({"1", "3"})
+    public int ensembleSize;
+
+    private Closeable server;
+    private CuratorFramework client;
+
+    @Setup
+    public void start() throws Exception {
+        String connectString;
+        if (ensembleSize == 1) {
+            TestingServer testingServer = new TestingServer(true);
+            connectString = testingServer.getConnectString();
+            server = testingServer;
+        } else {
+            TestingCluster cluster = new TestingCluster(ensembleSize);
+            cluster.start();
+            connectString = cluster.getConnectString();
+            server = cluster;
+        }
+        client = CuratorFrameworkFactory.newClient(connectString, new ExponentialBackoffRetry(1000, 3));
+        client.start();
+        client.blockUntilConnected();
+    }
+
+    @TearDown
+    public void stop() throws Exception {
+        client.close();
+        server.close();
+    }
+
+    public CuratorFramework client() {
+        return client;
+    }
+}
@@ -0,0 +1,262 @@
+package com.demo.samples.loadtest;
+
+import com.demo.samples.Application;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.curator.test.InstanceSpec;
+import org.apache.curator.test.TestingCluster;
+import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.client.FourLetterWordMain;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays a {@link Scenario} against N application instances sharing one embedded ensemble,
+ * all in this JVM: a {@link TestingCluster} (or a {@link TestingServer} for an ensemble of 1)
+ * and one Spring context per node on a random port.
+ * <p>
+ * Each scenario client is a thread bound to one node (round robin) that runs operations
+ * back to back. Only operations started after the warmup are measured. The report lists
+ * throughput, latency percentiles (HdrHistogram) and error rate per operation, and the
+ * number of packets the ZooKeeper servers received and sent during the measurement, taken
+ * from the {@code srvr} four-letter word.
+ * <p>
+ * System properties: {@code loadtest.scenario} (file or classpath resource),
+ * {@code loadtest.nodes} and {@code loadtest.ensemble}.
+ */
+public class LoadTestRunner {
+
+    // Latencies are recorded in microseconds, up to a minute
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private record Stats(Histogram latency, LongAdder errors) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Scenario scenario = Scenario.load(System.getProperty("loadtest.scenario", "loadtest/counter-rwlock.properties"));
+        int nodes = Integer.parseInt(System.getProperty("loadtest.nodes", "3"));
+        int ensembleSize = Integer.parseInt(System.getProperty("loadtest.ensemble", "3"));
+
+        // srvr is not on the default four-letter word whitelist
+        System.setProperty("zookeeper.4lw.commands.whitelist", "srvr");
+        List<InstanceSpec> servers = new ArrayList<>();
+        Closeable ensemble;
+        String connectString;
+        if (ensembleSize == 1) {
+            InstanceSpec spec = InstanceSpec.newInstanceSpec();
+            TestingServer testingServer = new TestingServer(spec, true);
+            servers.add(spec);
+            connectString = testingServer.getConnectString();
+            ensemble = testingServer;
+        } else {
+            TestingCluster cluster = new TestingCluster(ensembleSize);
+            cluster.start();
+            servers.addAll(cluster.getInstances());
+            connectString = cluster.getConnectString();
+            ensemble = cluster;
+        }
+
+        List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+        List<String> baseUrls = new ArrayList<>();
+        int exitStatus = 0;
+        try {
+            for (int i = 0; i < nodes; i++) {
+                // Command line arguments, so they override application.properties
+                ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                        .run("--server.port=0",
+                                "--zookeeper.connect-string=" + connectString,
+                                "--spring.jmx.enabled=false",
+                                "--logging.level.root=WARN");
+                contexts.add(context);
+                baseUrls.add("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+            }
+            System.out.println("Load test '" + scenario.getName() + "': " + scenario.getClients() + " clients, "
+                    + nodes + " nodes, ensemble of " + ensembleSize + " at " + connectString);
+            run(scenario, contexts, baseUrls, servers);
+        } catch (Exception | Error e) {
+            e.printStackTrace();
+            exitStatus = 1;
+        } finally {
+            try {
+                for (ConfigurableApplicationContext context : contexts) {
+                    context.close();
+                }
+                ensemble.close();
+            } catch (Exception e) {
+                System.out.println("Shutdown failed: " + e.getMessage());
+                exitStatus = 1;
+            }
+            // Curator and Tomcat leave non-daemon threads behind, so exit explicitly and keep the failure
+            System.exit(exitStatus);
+        }
+    }
+
+    private static void run(Scenario scenario, List<ConfigurableApplicationContext> contexts, List<String> baseUrls,
+                            List<InstanceSpec> servers) throws Exception {
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        for (Scenario.Operation operation : scenario.getOperations()) {
+            stats.put(operation.name(), new Stats(new ConcurrentHistogram(MAX_LATENCY_MICROS, 3), new LongAdder()));
+        }
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(scenario.getWarmupSeconds());
+        long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(scenario.getDurationSeconds());
+        CountDownLatch done = new CountDownLatch(scenario.getClients());
+        for (int c = 0; c < scenario.getClients(); c++) {
+            int client = c;
+            int node = c % contexts.size();
+            Thread thread = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < measureUntil) {
+                        Scenario.Operation operation = scenario.pick();
+                        long began = System.nanoTime();
+                        boolean ok = execute(operation, client, http, baseUrls.get(node), contexts.get(node));
+                        long ended = System.nanoTime();
+                        if (began >= measureFrom && began < measureUntil) {
+                            Stats operationStats = stats.get(operation.name());
+                            operationStats.latency().recordValue(Math.min(MAX_LATENCY_MICROS, (ended - began) / 1000));
+                            if (!ok) {
+                                operationStats.errors().increment();
+                            }
+                        }
+                        if (scenario.getThinkTimeMs() > 0) {
+                            Thread.sleep(scenario.getThinkTimeMs());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "loadtest-client-" + c);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        TimeUnit.NANOSECONDS.sleep(measureFrom - System.nanoTime());
+        long[] zkBefore = zooKeeperPackets(servers);
+        TimeUnit.NANOSECONDS.sleep(measureUntil - System.nanoTime());
+        long[] zkAfter = zooKeeperPackets(servers);
+        // Let in-flight operations finish so they are counted
+        done.await(60, TimeUnit.SECONDS);
+
+        report(scenario, stats, zkAfter[0] - zkBefore[0], zkAfter[1] - zkBefore[1]);
+    }
+
+    private static boolean execute(Scenario.Operation operation, int client, HttpClient http, String baseUrl,
+                                   ConfigurableApplicationContext context) throws InterruptedException {
+        try {
+            Object result;
+            if (operation.isInvoke()) {
+                Object bean = context.getBean(operation.bean());
+                Method method = bean.getClass().getMethod(operation.beanMethod());
+                result = method.invoke(bean);
+                return !(result instanceof Map<?, ?> map) || isSuccess(map.get("status"));
+            }
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + operation.resolvePath(client)))
+                    .method(operation.method(), HttpRequest.BodyPublishers.noBody())
+                    .timeout(Duration.ofSeconds(60))
+                    .build();
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            String body = response.body();
+            return response.statusCode() < 400
+                    && !body.contains("\"status\":\"error\"") && !body.contains("\"status\":\"failed\"");
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static boolean isSuccess(Object status) {
+        return !"error".equals(status) && !"failed".equals(status);
+    }
+
+    // Packets received and sent, summed over the ensemble
+    private static long[] zooKeeperPackets(List<InstanceSpec> servers) {
+        long received = 0;
+        long sent = 0;
+        for (InstanceSpec server : servers) {
+            try {
+                String srvr = FourLetterWordMain.send4LetterWord(server.getHostname(), server.getPort(), "srvr");
+                for (String line : srvr.split("\n")) {
+                    if (line.startsWith("Received:")) {
+                        received += Long.parseLong(line.substring("Received:".length()).trim());
+                    } else if (line.startsWith("Sent:")) {
+                        sent += Long.parseLong(line.substring("Sent:".length()).trim());
+                    }
+                }
+            } catch (Exception e) {
+                System.out.println("srvr failed for " + server.getHostname() + ":" + server.getPort() + ": " + e.getMessage());
+            }
+        }
+        return new long[]{received, sent};
+    }
+
+    private static void report(Scenario scenario, Map<String, Stats> stats, long zkReceived, long zkSent) throws Exception {
+        double seconds = scenario.getDurationSeconds();
+        StringWriter buffer = new StringWriter();
+        PrintWriter out = new PrintWriter(buffer);
+        out.printf("Scenario %s: %d clients, %ds measured after %ds warmup%n",
+                scenario.getName(), scenario.getClients(), scenario.getDurationSeconds(), scenario.getWarmupSeconds());
+        out.printf("%-16s %10s %10s %8s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "ops/s", "errors%", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+        long totalErrors = 0;
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Histogram latency = entry.getValue().latency();
+            long errors = entry.getValue().errors().sum();
+            total.add(latency);
+            totalErrors += errors;
+            printRow(out, entry.getKey(), latency, errors, seconds);
+        }
+        printRow(out, "total", total, totalErrors, seconds);
+        long operations = total.getTotalCount();
+        out.printf("ZooKeeper packets: %d received (%.0f/s), %d sent (%.0f/s), %.2f received per operation%n",
+                zkReceived, zkReceived / seconds, zkSent, zkSent / seconds,
+                operations > 0 ? (double) zkReceived / operations : 0.0);
+        out.flush();
+
+        System.out.print(buffer);
+        Path file = Path.of("target", "loadtest-" + scenario.getName() + ".txt");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, buffer.toString());
+        System.out.println("Report written to " + file);
+    }
+
+    private static void printRow(PrintWriter out, String name, Histogram latency, long errors, double seconds) {
+        long count = latency.getTotalCount();
+        out.printf("%-16s %10d %10.1f %8.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, count, count / seconds, count > 0 ? 100.0 * errors / count : 0.0,
+                millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                millis(latency.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,151 @@
+package com.demo.samples.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A load-test scenario read from a properties file: how many clients, for how long, and a
+ * weighted mix of operations. See {@code src/test/resources/loadtest} for examples.
+ * <p>
+ * An operation is either an HTTP request against one of the nodes
+ * ({@code operation.<name>.request=POST /zk-test/...}) or a no-argument method called
+ * directly on a bean ({@code operation.<name>.invoke=<beanName>.<method>}). Request paths may
+ * contain {@code ${random:N}} (a number below N, drawn per request) and {@code ${client}}.
+ */
+public class Scenario {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{(random:(\\d+)|client)}");
+
+    public record Operation(String name, int weight, String method, String path, String bean, String beanMethod) {
+
+        public boolean isInvoke() {
+            return bean != null;
+        }
+
+        public String resolvePath(int client) {
+            Matcher matcher = PLACEHOLDER.matcher(path);
+            StringBuilder resolved = new StringBuilder();
+            while (matcher.find()) {
+                String value = matcher.group(2) != null
+                        ? String.valueOf(ThreadLocalRandom.current().nextInt(Integer.parseInt(matcher.group(2))))
+                        : String.valueOf(client);
+                matcher.appendReplacement(resolved, value);
+            }
+            matcher.appendTail(resolved);
+            return resolved.toString();
+        }
+    }
+
+    private final String name;
+    private final int clients;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final long thinkTimeMs;
+    private final List<Operation> operations;
+    private final int totalWeight;
+
+    private Scenario(Properties properties) {
+        this.name = properties.getProperty("name", "scenario");
+        this.clients = Integer.parseInt(properties.getProperty("clients", "10"));
+        this.warmupSeconds = Integer.parseInt(properties.getProperty("warmup-seconds", "5"));
+        this.durationSeconds = Integer.parseInt(properties.getProperty("duration-seconds", "30"));
+        this.thinkTimeMs = Long.parseLong(properties.getProperty("think-time-ms", "0"));
+        this.operations = new ArrayList<>();
+        for (String operationName : properties.getProperty("operations", "").split(",")) {
+            operationName = operationName.trim();
+            if (!operationName.isEmpty()) {
+                operations.add(parseOperation(properties, operationName));
+            }
+        }
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("Scenario " + name + " defines no operations");
+        }
+        this.totalWeight = operations.stream().mapToInt(Operation::weight).sum();
+    }
+
+    private static Operation parseOperation(Properties properties, String name) {
+        String prefix = "operation." + name + ".";
+        int weight = Integer.parseInt(properties.getProperty(prefix + "weight", "1"));
+        String request = properties.getProperty(prefix + "request");
+        String invoke = properties.getProperty(prefix + "invoke");
+        if (request != null) {
+            String[] parts = request.trim().split("\\s+", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected '<METHOD> <path>' for " + prefix + "request: " + request);
+            }
+            return new Operation(name, weight, parts[0].toUpperCase(), parts[1], null, null);
+        }
+        if (invoke != null) {
+            int dot = invoke.lastIndexOf('.');
+            if (dot <= 0) {
+                throw new IllegalArgumentException("Expected '<beanName>.<method>' for " + prefix + "invoke: " + invoke);
+            }
+            return new Operation(name, weight, null, null, invoke.substring(0, dot).trim(), invoke.substring(dot + 1).trim());
+        }
+        throw new IllegalArgumentException("Operation " + name + " needs a request or invoke property");
+    }
+
+    /**
+     * Loads a scenario from the file system, or from the test classpath when no such file exists.
+     */
+    public static Scenario load(String location) throws IOException {
+        Properties properties = new Properties();
+        Path file = Path.of(location);
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+        } else {
+            try (InputStream in = Scenario.class.getClassLoader().getResourceAsStream(location)) {
+                if (in == null) {
+                    throw new IOException("Scenario not found: " + location);
+                }
+                properties.load(in);
+            }
+        }
+        return new Scenario(properties);
+    }
+
+    public Operation pick() {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Operation operation : operations) {
+            roll -= operation.weight();
+            if (roll < 0) {
+                return operation;
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getClients() {
+        return clients;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public long getThinkTimeMs() {
+        return thinkTimeMs;
+    }
+
+    public List<Operation> getOperations() {
+        return operations;
+    }
+}
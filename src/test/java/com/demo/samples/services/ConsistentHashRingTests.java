@@ -0,0 +1,54 @@
+package com.demo.samples.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTests {
+
+	@Test
+	void emptyRingHasNoOwner() {
+		ConsistentHashRing ring = new ConsistentHashRing(64, 16);
+		assertNull(ring.ownerOf("order-1"));
+	}
+
+	@Test
+	void joiningMemberOnlyTakesPartitionsFromOthers() {
+		ConsistentHashRing ring = new ConsistentHashRing(1024, 128);
+		assertEquals(1024, ring.update(List.of("a", "b", "c")));
+		ConsistentHashRing.Assignment before = ring.getAssignment();
+
+		int moved = ring.update(List.of("a", "b", "c", "d"));
+		ConsistentHashRing.Assignment after = ring.getAssignment();
+
+		int ownedByD = 0;
+		for (int p = 0; p < 1024; p++) {
+			if (!before.ownerOfPartition(p).equals(after.ownerOfPartition(p))) {
+				assertEquals("d", after.ownerOfPartition(p));
+			}
+			if ("d".equals(after.ownerOfPartition(p))) {
+				ownedByD++;
+			}
+		}
+		assertEquals(ownedByD, moved);
+		// Roughly a quarter, with slack for hash variance
+		assertTrue(moved > 150 && moved < 400, "moved " + moved);
+	}
+
+	@Test
+	void leavingAndRejoiningRestoresAssignment() {
+		ConsistentHashRing ring = new ConsistentHashRing(256, 64);
+		ring.update(List.of("a", "b", "c"));
+		String owner = ring.ownerOf("order-42");
+
+		ring.update(List.of("a", "b"));
+		ring.update(List.of("a", "b", "c"));
+
+		assertEquals(owner, ring.ownerOf("order-42"));
+		assertEquals(3, ring.getAssignment().version());
+	}
+}
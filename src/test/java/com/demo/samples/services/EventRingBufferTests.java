@@ -0,0 +1,100 @@
+package com.demo.samples.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EventRingBufferTests {
+
+	@Test
+	void readsEventsInOrderWithCursor() {
+		EventRingBuffer buffer = new EventRingBuffer(8);
+		for (int i = 0; i < 5; i++) {
+			buffer.append(EventRingBuffer.EventType.COUNT_CHANGED, i, i);
+		}
+
+		EventRingBuffer.Page first = buffer.read(0, 3);
+		assertEquals(3, first.events().size());
+		assertEquals(3, first.nextCursor());
+
+		EventRingBuffer.Page second = buffer.read(first.nextCursor(), 10);
+		assertEquals(2, second.events().size());
+		assertEquals(4, second.events().get(1).value());
+		assertEquals(0, second.missed());
+	}
+
+	@Test
+	void overwritesOldestEventsWhenFull() {
+		EventRingBuffer buffer = new EventRingBuffer(4);
+		for (int i = 0; i < 10; i++) {
+			buffer.append(EventRingBuffer.EventType.COUNT_CHANGED, i, i);
+		}
+
+		EventRingBuffer.Page page = buffer.read(0, 100);
+		assertEquals(4, page.events().size());
+		assertEquals(6, page.events().get(0).value());
+		assertEquals(6, page.missed());
+		assertEquals(10, page.nextCursor());
+	}
+
+	@Test
+	void clearHidesExistingEvents() {
+		EventRingBuffer buffer = new EventRingBuffer(4);
+		buffer.append(EventRingBuffer.EventType.COUNT_CHANGED, 1, 1);
+		buffer.append(EventRingBuffer.EventType.CONNECTION_STATE, 2, -1);
+
+		assertEquals(2, buffer.clear());
+		assertEquals(0, buffer.size());
+		assertEquals(0, buffer.read(0, 10).events().size());
+	}
+
+	@Test
+	@Timeout(30)
+	void concurrentWritersNeverPublishTornEvents() throws Exception {
+		EventRingBuffer buffer = new EventRingBuffer(4);
+		Thread[] writers = new Thread[4];
+		for (int w = 0; w < writers.length; w++) {
+			writers[w] = new Thread(() -> {
+				for (int i = 0; i < 100_000; i++) {
+					buffer.append(EventRingBuffer.EventType.COUNT_CHANGED, i, i);
+				}
+			});
+			writers[w].start();
+		}
+		long cursor = 0;
+		while (cursor < 400_000) {
+			EventRingBuffer.Page page = buffer.read(cursor, 16);
+			for (EventRingBuffer.Event event : page.events()) {
+				assertEquals(event.value(), event.version());
+			}
+			cursor = page.nextCursor();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		assertEquals(400_000, buffer.head());
+	}
+
+	@Test
+	void droppedSequencesAreCountedAsMissed() throws Exception {
+		EventRingBuffer buffer = new EventRingBuffer(2);
+		Thread[] writers = new Thread[8];
+		for (int w = 0; w < writers.length; w++) {
+			writers[w] = new Thread(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					buffer.append(EventRingBuffer.EventType.COUNT_CHANGED, i, i);
+				}
+			});
+			writers[w].start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		// Every sequence is either readable or missed, and reading never stalls
+		EventRingBuffer.Page page = buffer.read(buffer.head() - buffer.capacity(), 10);
+		assertEquals(buffer.head(), page.nextCursor());
+		assertEquals(buffer.capacity(), page.events().size() + page.missed());
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.demo.samples.services;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.atomic.DistributedAtomicLong;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ShardedAtomicLongTests {
+
+	private TestingServer server;
+	private CuratorFramework client;
+
+	@BeforeEach
+	void start() throws Exception {
+		server = new TestingServer(true);
+		client = CuratorFrameworkFactory.builder()
+				.connectString(server.getConnectString())
+				.connectionTimeoutMs(1000)
+				.sessionTimeoutMs(10000)
+				.retryPolicy(new RetryOneTime(10))
+				.build();
+		client.start();
+		client.blockUntilConnected();
+	}
+
+	@AfterEach
+	void stop() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	private ShardedAtomicLong counter(String instanceId) {
+		// Flushed only when the test asks
+		return new ShardedAtomicLong(client, "/counters/test", 4, instanceId, 60000, Long.MAX_VALUE, 0);
+	}
+
+	@Test
+	void flushedDeltasFromSeveralInstancesAddUp() throws Exception {
+		ShardedAtomicLong first = counter("a");
+		ShardedAtomicLong second = counter("b");
+		for (int i = 0; i < 10; i++) {
+			first.add(1);
+			second.add(2);
+		}
+		assertEquals(0, first.getTotal());
+
+		assertEquals(10, first.flush());
+		assertEquals(20, second.flush());
+		assertEquals(0, first.getPending());
+		assertEquals(30, first.getTotal());
+		first.close();
+		second.close();
+	}
+
+	@Test
+	void totalIncludesTheUnshardedValue() throws Exception {
+		new DistributedAtomicLong(client, "/counters/test", new RetryOneTime(10)).forceSet(100L);
+		ShardedAtomicLong counter = counter("a");
+		counter.add(5);
+		counter.flush();
+		assertEquals(105, counter.getTotal());
+
+		counter.set(7);
+		assertEquals(7, counter.getTotal());
+		counter.close();
+	}
+
+	@Test
+	void failedFlushKeepsTheDelta() throws Exception {
+		ShardedAtomicLong counter = counter("a");
+		counter.add(3);
+		server.stop();
+		assertThrows(Exception.class, counter::flush);
+		assertEquals(3, counter.getPending());
+
+		server.restart();
+		client.blockUntilConnected();
+		assertEquals(3, counter.flush());
+		assertEquals(3, counter.getTotal());
+		counter.close();
+	}
+}
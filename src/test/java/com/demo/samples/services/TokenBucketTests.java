@@ -0,0 +1,42 @@
+package com.demo.samples.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TokenBucketTests {
+
+	@Test
+	void refillEarnsExactlyRateTimesElapsedUpToBurst() {
+		TokenBucket bucket = TokenBucket.full(100, 0).take(100);
+		assertEquals(0, bucket.available());
+
+		// 3 permits/s for 500 ms is 1.5 tokens: one whole token plus half carried over
+		bucket = bucket.refill(500, 3, 100);
+		assertEquals(1, bucket.available());
+		assertEquals(1500, bucket.milliTokens());
+
+		assertEquals(100, bucket.refill(1_000_000, 3, 100).available());
+	}
+
+	@Test
+	void clockBehindLastRefillEarnsNothing() {
+		TokenBucket bucket = new TokenBucket(5000, 1000);
+		assertEquals(bucket, bucket.refill(900, 1000, 100));
+	}
+
+	@Test
+	void takeAndGiveBackStayWithinBounds() {
+		TokenBucket bucket = TokenBucket.full(10, 0);
+		assertThrows(IllegalArgumentException.class, () -> bucket.take(11));
+		assertEquals(10, bucket.take(4).giveBack(20, 10).available());
+		assertEquals(334, new TokenBucket(0, 0).millisUntilToken(3));
+	}
+
+	@Test
+	void encodesRoundTrip() {
+		TokenBucket bucket = new TokenBucket(123_456, 1_700_000_000_000L);
+		assertEquals(bucket, TokenBucket.decode(bucket.encode()));
+	}
+}
@@ -0,0 +1,116 @@
+package com.demo.samples.services;
+
+import org.apache.curator.drivers.TracerDriver;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TreeBarrierTests {
+
+	@Test
+	void widthShrinksByFanInPerLevel() {
+		assertEquals(1000, TreeBarrier.width(1000, 16, 0));
+		assertEquals(63, TreeBarrier.width(1000, 16, 1));
+		assertEquals(4, TreeBarrier.width(1000, 16, 2));
+		assertEquals(1, TreeBarrier.width(1000, 16, 3));
+		assertEquals(3, TreeBarrier.depth(1000, 16));
+	}
+
+	@Test
+	void onlyTheLastGroupOfALevelIsShort() {
+		assertEquals(16, TreeBarrier.groupSize(1000, 16, 0, 0));
+		assertEquals(16, TreeBarrier.groupSize(1000, 16, 0, 61));
+		// 1000 = 62 * 16 + 8
+		assertEquals(8, TreeBarrier.groupSize(1000, 16, 0, 62));
+		assertEquals(4, TreeBarrier.groupSize(1000, 16, 2, 0));
+	}
+
+	@Test
+	void everyArrivalIsExpectedByExactlyOneLeader() {
+		int memberQty = 77;
+		int fanIn = 3;
+		int arrivals = 0;
+		int expected = 0;
+		for (int level = 0; level < TreeBarrier.depth(memberQty, fanIn); level++) {
+			int width = TreeBarrier.width(memberQty, fanIn, level);
+			for (int position = 0; position < width; position++) {
+				if (position % fanIn == 0) {
+					expected += TreeBarrier.groupSize(memberQty, fanIn, level, position / fanIn) - 1;
+				} else {
+					arrivals++;
+				}
+			}
+		}
+		// Everyone but the root arrives somewhere once
+		assertEquals(memberQty - 1, arrivals);
+		assertEquals(arrivals, expected);
+	}
+
+	@Test
+	void singleMemberIsItsOwnRoot() {
+		assertEquals(0, TreeBarrier.depth(1, 16));
+	}
+
+	@Test
+	void roundReleasesEveryMemberWithABoundedNumberOfOperations() throws Exception {
+		int memberQty = 27;
+		int fanIn = 3;
+		AtomicInteger operations = new AtomicInteger();
+		try (TestingServer server = new TestingServer(true);
+				CuratorFramework client = CuratorFrameworkFactory.newClient(server.getConnectString(), new RetryOneTime(10))) {
+			client.start();
+			client.blockUntilConnected();
+			client.getZookeeperClient().setTracerDriver(new TracerDriver() {
+				@Override
+				public void addTrace(String name, long time, TimeUnit unit) {
+					// One per foreground ZooKeeper call
+					if (name.endsWith("-Foreground")) {
+						operations.incrementAndGet();
+					}
+				}
+
+				@Override
+				public void addCount(String name, int increment) {
+				}
+			});
+
+			TreeBarrier barrier = new TreeBarrier(client, "/barriers/test-tree", memberQty, fanIn);
+			ExecutorService members = Executors.newFixedThreadPool(memberQty);
+			try {
+				List<Future<TreeBarrier.Arrival>> arrivals = new ArrayList<>();
+				for (int i = 0; i < memberQty; i++) {
+					arrivals.add(members.submit(() -> barrier.enter(0, 20, TimeUnit.SECONDS)));
+					// Staggered, so later tickets are taken while earlier members already wait
+					Thread.sleep(20);
+				}
+				int led = 0;
+				for (Future<TreeBarrier.Arrival> arrival : arrivals) {
+					TreeBarrier.Arrival result = arrival.get(30, TimeUnit.SECONDS);
+					assertTrue(result.released(), "member " + result.member() + " was not released");
+					led += result.levelsLed();
+				}
+				// Every group of the 3 levels has one leader: 9 + 3 + 1
+				assertEquals(13, led);
+			} finally {
+				members.shutdownNow();
+			}
+		}
+		// At least a ticket each, and a constant number per member; waking every waiter on each
+		// ticket would be quadratic
+		assertTrue(operations.get() >= memberQty, "ZooKeeper operations: " + operations.get());
+		assertTrue(operations.get() <= memberQty * 10, "ZooKeeper operations: " + operations.get());
+	}
+}